@@ -0,0 +1,27 @@
+package Minesweeper.main.Benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа модуля замеров. Принимает те же аргументы, что и org.openjdk.jmh.Main, и всегда добавляет профилировщик
+ * сборщика мусора, чтобы рядом со временем выводилось количество выделенных байт на операцию (gc.alloc.rate.norm).
+ * Запуск: java -jar benchmarks/target/benchmarks.jar [регулярное выражение замеров] [параметры JMH]
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры генерации скрытого поля {@link BoardService} для полей из ячеек {@link BoardModel} и упакованных полей
+ * {@link PackedBoardModel}. Параметры - сторона квадратного поля и доля мин
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardServiceBenchmark {
+
+    @Param({"9", "100", "1000"})
+    public int size;
+
+    @Param({"0.12", "0.2"})
+    public double density;
+
+    private final BoardService service = new BoardService();
+    private int mines;
+    private long seed;
+
+    /**
+     * Поле с расставленными минами, на котором считаются цифры
+     */
+    private Cell[][] minedCells;
+    private PackedBoardModel minedModel;
+
+    /**
+     * Поле, которое заполняется минами на каждом вызове
+     */
+    private Cell[][] cells;
+    private PackedBoardModel model;
+
+    private Cell centerCell;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mines = (int) (size * size * density);
+        minedCells = service.fillBoard(size, size);
+        service.putMinesAtBoard(minedCells, mines, size / 2, size / 2);
+        minedModel = new PackedBoardModel();
+        minedModel.initHiddenBoard(size, size);
+        service.putMinesAtBoard(minedModel, mines, size / 2, size / 2, 42);
+        model = new PackedBoardModel();
+        centerCell = new Cell(size / 2, size / 2);
+    }
+
+    /**
+     * Каждый вызов расставляет мины на пустом поле с новым зерном
+     */
+    @Setup(Level.Invocation)
+    public void clearBoards() {
+        cells = service.fillBoard(size, size);
+        model.initHiddenBoard(size, size);
+        seed++;
+    }
+
+    @Benchmark
+    public Cell[][] fillBoard() {
+        return service.fillBoard(size, size);
+    }
+
+    @Benchmark
+    public Cell[][] putMinesAtCells() {
+        service.putMinesAtBoard(cells, mines, size / 2, size / 2);
+        return cells;
+    }
+
+    @Benchmark
+    public BoardModelInterface putMinesAtPackedModel() {
+        service.putMinesAtBoard(model, mines, size / 2, size / 2, seed);
+        return model;
+    }
+
+    /**
+     * Цифры пересчитываются поверх уже посчитанных, результат от этого не меняется
+     */
+    @Benchmark
+    public Cell[][] defineOtherCells() {
+        service.defineOtherCells(minedCells);
+        return minedCells;
+    }
+
+    @Benchmark
+    public BoardModelInterface defineOtherCellsPacked() {
+        service.defineOtherCells(minedModel);
+        return minedModel;
+    }
+
+    @Benchmark
+    public void lookAroundCell(Blackhole blackhole) {
+        for (Cell cell : service.lookAroundCell(centerCell, size, size)) {
+            blackhole.consume(minedCells[cell.getX()][cell.getY()].getCellType() == CellType.MINE);
+        }
+    }
+}
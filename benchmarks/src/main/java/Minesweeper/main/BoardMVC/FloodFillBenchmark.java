@@ -0,0 +1,58 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.BoardModelInterface;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер открытия клетки {@link BoardListenerService#onLeftClick} на закрытом поле. При малой доле мин первый клик
+ * открывает большую часть поля, поэтому замер показывает стоимость заливки пустых клеток. Видимое поле закрывается
+ * заново перед каждым вызовом
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloodFillBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"0.0", "0.05", "0.12"})
+    public double density;
+
+    @Param({"packed", "cells"})
+    public String model;
+
+    private final BoardListenerService listenerService = new BoardListenerService();
+    private BoardModelInterface board;
+    private int mines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mines = (int) (size * size * density);
+        board = model.equals("packed") ? new PackedBoardModel() : new BoardModel();
+        board.initVisibleBoard(size, size);
+        board.initHiddenBoard(size, size);
+        BoardService service = new BoardService();
+        service.putMinesAtBoard(board, mines, size / 2, size / 2, 42);
+        service.defineOtherCells(board);
+    }
+
+    @Setup(Level.Invocation)
+    public void closeBoard() {
+        board.initVisibleBoard(size, size);
+        listenerService.startGame(size * size, mines);
+    }
+
+    @Benchmark
+    public int onLeftClick() {
+        return listenerService.onLeftClick(size / 2, size / 2, board);
+    }
+}
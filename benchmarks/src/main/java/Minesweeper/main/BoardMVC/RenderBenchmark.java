@@ -0,0 +1,68 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.Engine.GameEngine;
+import Minesweeper.main.Solver.ProbabilityMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер отрисовки поля {@link BoardView} в буфер {@link BufferedImage} без экрана. Рисуется поле после первого
+ * клика, то есть смесь закрытых и открытых клеток, и карта вероятностей поверх него
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    private static final int ICON_SIZE = 32;
+
+    @Param({"9", "30", "100"})
+    public int size;
+
+    @Param({"0.12", "0.2"})
+    public double density;
+
+    private BoardRenderer renderer;
+    private GameEngine engine;
+    private ProbabilityMap heatMap;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        renderer = new BoardRenderer(TileAtlas.getInstance(), ICON_SIZE);
+        engine = new GameEngine(new PackedBoardModel());
+        engine.newGame(size, size, Math.max(1, (int) (size * size * density)), 42);
+        engine.reveal(size / 2, size / 2);
+        heatMap = engine.computeProbabilities();
+        image = new BufferedImage(size * ICON_SIZE, size * ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintCells() {
+        renderer.paintCells(graphics, engine.getModel(), 0, 0, size - 1, size - 1);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintCellsWithHeatMap() {
+        renderer.paintCells(graphics, engine.getModel(), 0, 0, size - 1, size - 1);
+        renderer.paintHeatMap(graphics, engine.getModel(), heatMap, 0, 0, size - 1, size - 1);
+        return image;
+    }
+}
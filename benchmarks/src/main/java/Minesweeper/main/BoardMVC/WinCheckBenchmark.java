@@ -0,0 +1,50 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.Engine.GameEngine;
+import Minesweeper.main.GameStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер проверки победы. Раньше контроллер проверял победу обходом всего поля после каждого хода, теперь статус
+ * ведет движок по счетчику неоткрытых клеток. Замер сравнивает чтение статуса с полным обходом
+ * {@link BoardListenerService#countUnrevealedSafeCells}, который повторяет прежнюю проверку
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinCheckBenchmark {
+
+    @Param({"9", "100", "1000"})
+    public int size;
+
+    @Param({"0.12", "0.2"})
+    public double density;
+
+    private final BoardListenerService listenerService = new BoardListenerService();
+    private GameEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new GameEngine(new PackedBoardModel());
+        engine.newGame(size, size, (int) (size * size * density), 42);
+        engine.reveal(size / 2, size / 2);
+    }
+
+    @Benchmark
+    public GameStatus engineStatus() {
+        return engine.getGameStatus();
+    }
+
+    @Benchmark
+    public boolean fullScan() {
+        return listenerService.countUnrevealedSafeCells(engine.getModel()) == 0;
+    }
+}
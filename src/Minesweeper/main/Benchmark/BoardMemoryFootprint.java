@@ -0,0 +1,67 @@
+package Minesweeper.main.Benchmark;
+
+import Minesweeper.main.BoardMVC.BoardModel;
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.Difficulty;
+
+import java.util.function.Supplier;
+
+/**
+ * Класс сравнивает объем памяти, занимаемый скрытым и видимым полями в {@link BoardModel} и {@link PackedBoardModel}
+ * для всех уровней сложности и для поля 1000x1000. Запуск: java Minesweeper.main.Benchmark.BoardMemoryFootprint
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class BoardMemoryFootprint {
+
+    /**
+     * Количество одновременно удерживаемых моделей. Измерение нескольких копий сглаживает погрешность сборщика мусора
+     */
+    private static final int COPIES = 16;
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %12s %14s %14s %8s%n", "board", "cells", "Cell[][] B/c", "packed B/c", "ratio");
+        for (Difficulty difficulty : new Difficulty[]{Difficulty.EASY, Difficulty.NORMAL, Difficulty.HARD}) {
+            print(difficulty.name(), difficulty.width, difficulty.height);
+        }
+        print("1000x1000", 1000, 1000);
+    }
+
+    private static void print(String name, int width, int height) {
+        int copies = width * height > 100_000 ? 2 : COPIES;
+        double cells = (double) width * height * copies;
+        double cellModel = measure(() -> create(new BoardModel(), width, height), copies) / cells;
+        double packedModel = measure(() -> create(new PackedBoardModel(), width, height), copies) / cells;
+        System.out.printf("%-10s %12d %14.2f %14.2f %7.1fx%n", name, width * height, cellModel, packedModel,
+                cellModel / packedModel);
+    }
+
+    private static BoardModelInterface create(BoardModelInterface model, int width, int height) {
+        model.initVisibleBoard(width, height);
+        model.initHiddenBoard(width, height);
+        return model;
+    }
+
+    private static long measure(Supplier<BoardModelInterface> factory, int copies) {
+        Object[] models = new Object[copies];
+        long before = usedMemory();
+        for (int i = 0; i < copies; i++) {
+            models[i] = factory.get();
+        }
+        long after = usedMemory();
+        if (models[copies - 1] == null) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,120 @@
+package Minesweeper.main.Benchmark;
+
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.Difficulty;
+import Minesweeper.main.Engine.GameEngine;
+import Minesweeper.main.Engine.GameJournal;
+import Minesweeper.main.Engine.JournalReplayer;
+import Minesweeper.main.GameStatus;
+import Minesweeper.main.Metrics.LatencyHistogram;
+import Minesweeper.main.Simulation.Strategy;
+import Minesweeper.main.Simulation.StrategyType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Класс записывает игры бота в журналы {@link GameJournal}, измеряет размер журналов и скорость воспроизведения
+ * {@link JournalReplayer} и проверяет, что воспроизведенная игра совпадает с записанной клетка в клетку.
+ * Запуск: java Minesweeper.main.Benchmark.JournalReplayReport [игр на сложность] [зерно] [стратегия]
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class JournalReplayReport {
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        StrategyType strategyType = args.length > 2 ? StrategyType.valueOf(args[2]) : StrategyType.SIMPLE_RULES;
+        System.out.printf("games=%d seed=%d strategy=%s%n", games, seed, strategyType);
+        System.out.printf("%-8s %8s %10s %10s %10s %14s %10s%n", "board", "moves", "mean B", "p99 B", "max B",
+                "replays/s", "mismatch");
+        for (Difficulty difficulty : new Difficulty[]{Difficulty.EASY, Difficulty.NORMAL, Difficulty.HARD}) {
+            report(difficulty, games, seed, strategyType.create());
+        }
+    }
+
+    private static void report(Difficulty difficulty, int games, long seed, Strategy strategy) {
+        SplittableRandom random = new SplittableRandom(seed);
+        GameEngine engine = new GameEngine(new PackedBoardModel(), random.split());
+        LatencyHistogram bytes = new LatencyHistogram();
+        long moves = 0;
+        int mismatches = 0;
+        List<byte[]> recorded = new ArrayList<>(games);
+        for (int i = 0; i < games; i++) {
+            GameJournal journal = new GameJournal();
+            engine.setJournal(journal);
+            engine.newGame(difficulty.width, difficulty.height, difficulty.mines);
+            strategy.startGame(engine);
+            while (engine.getGameStatus() == GameStatus.IN_PROCESS) {
+                strategy.makeMove(engine, random);
+            }
+            byte[] data = write(journal);
+            bytes.record(data.length);
+            moves += journal.getMoveCount();
+            recorded.add(data);
+            GameEngine replayed = JournalReplayer.replay(read(data));
+            if (!sameBoard(engine, replayed)) {
+                mismatches++;
+            }
+        }
+        GameJournal[] journals = new GameJournal[games];
+        for (int i = 0; i < games; i++) {
+            journals[i] = read(recorded.get(i));
+        }
+        GameEngine replayEngine = new GameEngine();
+        int rounds = Math.max(1, 20000 / games);
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (GameJournal journal : journals) {
+                JournalReplayer.replay(journal, replayEngine);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-8s %8.1f %10.1f %10d %10d %14.0f %10d%n", difficulty, (double) moves / games,
+                bytes.getMean(), bytes.getValueAtPercentile(99), bytes.getMax(), rounds * games / seconds,
+                mismatches);
+    }
+
+    private static boolean sameBoard(GameEngine expected, GameEngine actual) {
+        if (expected.getGameStatus() != actual.getGameStatus()
+                || expected.getUnrevealedSafeCells() != actual.getUnrevealedSafeCells()) {
+            return false;
+        }
+        BoardModelInterface a = expected.getModel();
+        BoardModelInterface b = actual.getModel();
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                if (a.getVisibleCellType(x, y) != b.getVisibleCellType(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static byte[] write(GameJournal journal) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            journal.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static GameJournal read(byte[] data) {
+        try {
+            return GameJournal.read(new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package Minesweeper.main.Benchmark;
+
+import Minesweeper.main.BoardMVC.BoardModel;
+import Minesweeper.main.BoardMVC.BoardService;
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Проверка подсчета мин вокруг клеток {@link BoardService#defineOtherCells(BoardModelInterface)}. Поле заполняется
+ * сервисом, который на больших полях считает полосами строк параллельно, и сравнивается клетка в клетку
+ * с последовательным подсчетом по определению: для каждой клетки без мины просматриваются ее восемь соседей.
+ * <p>
+ * Размеры полей лежат по обе стороны от порога параллельного подсчета (65536 клеток) и размера полосы
+ * (16384 клетки), среди них есть поля в одну строку и в один столбец и поля, ширина которых не кратна 16,
+ * то есть последнее слово строки упакованной модели заполнено не полностью. На машине с одним процессором
+ * проверку запускают с -Djava.util.concurrent.ForkJoinPool.common.parallelism=4.
+ * Запуск: java Minesweeper.main.Benchmark.NeighborCountReport
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class NeighborCountReport {
+
+    private static final int[][] SIZES = {
+            {9, 9}, {100, 100}, {255, 255}, {256, 256}, {257, 255}, {16, 1024}, {17, 1025}, {1024, 16},
+            {1, 70000}, {70000, 1}, {1000, 1000}, {1021, 1031}, {4099, 17}, {3, 40000}, {2048, 2048}
+    };
+
+    private static final double[] DENSITIES = {0.05, 0.2, 0.5};
+
+    public static void main(String[] args) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        System.out.printf("common pool parallelism=%d%n", parallelism);
+        if (parallelism < 2) {
+            System.out.println("Bands are counted by one pool thread, "
+                    + "run with -Djava.util.concurrent.ForkJoinPool.common.parallelism=4");
+            System.exit(1);
+        }
+        System.out.printf("%8s %12s %8s %12s %12s %10s%n", "model", "size", "density", "mines", "ms",
+                "mismatch");
+        int failures = 0;
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            for (double density : DENSITIES) {
+                for (boolean packed : new boolean[]{true, false}) {
+                    if (!packed && (long) width * height > 1 << 20) {
+                        continue;
+                    }
+                    BoardModelInterface model = packed ? new PackedBoardModel() : new BoardModel();
+                    model.initVisibleBoard(width, height);
+                    model.initHiddenBoard(width, height);
+                    BoardService service = new BoardService();
+                    int mines = Math.min((int) ((long) width * height * density), width * height - 9);
+                    service.putMinesAtBoard(model, mines, width / 2, height / 2, width * 31L + height);
+                    long start = System.nanoTime();
+                    service.defineOtherCells(model);
+                    double millis = (System.nanoTime() - start) / 1e6;
+                    int mismatches = countMismatches(model);
+                    if (mismatches != 0) {
+                        failures++;
+                    }
+                    System.out.printf("%8s %12s %8.2f %12d %12.1f %10d %s%n", packed ? "packed" : "cells",
+                            width + "x" + height, density, mines, millis, mismatches,
+                            mismatches == 0 ? "" : "FAILED");
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "OK" : "FAILED boards: " + failures);
+        if (failures != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Количество клеток, тип которых не совпадает с последовательным подсчетом мин среди соседей
+     */
+    private static int countMismatches(BoardModelInterface model) {
+        int width = model.getWidth();
+        int height = model.getHeight();
+        int mismatches = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (model.getHiddenCellType(x, y) == CellType.MINE) {
+                    continue;
+                }
+                int mineCount = 0;
+                for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, height - 1); j++) {
+                    for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+                        if (model.getHiddenCellType(i, j) == CellType.MINE) {
+                            mineCount++;
+                        }
+                    }
+                }
+                if (model.getHiddenCellType(x, y) != CellType.fromOrdinal(mineCount)) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+}
@@ -0,0 +1,42 @@
+package Minesweeper.main.Benchmark;
+
+import Minesweeper.main.Difficulty;
+import Minesweeper.main.Engine.NoGuessGenerator;
+import Minesweeper.main.Metrics.LatencyHistogram;
+
+/**
+ * Класс измеряет поиск полей без угадывания {@link NoGuessGenerator}: сколько кандидатов приходится проверить и сколько
+ * длится поиск для каждой сложности. Первый клик - в центре поля.
+ * Запуск: java Minesweeper.main.Benchmark.NoGuessGenerationReport [полей на сложность] [зерно]
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class NoGuessGenerationReport {
+
+    public static void main(String[] args) {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        NoGuessGenerator generator = new NoGuessGenerator();
+        System.out.printf("boards=%d seed=%d threads=%d%n", boards, seed, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %7s %10s %10s %10s %10s %10s %10s%n", "board", "found", "attempts", "p50 att",
+                "max att", "mean ms", "p99 ms", "max ms");
+        for (Difficulty difficulty : new Difficulty[]{Difficulty.EASY, Difficulty.NORMAL, Difficulty.HARD}) {
+            LatencyHistogram attempts = new LatencyHistogram();
+            LatencyHistogram time = new LatencyHistogram();
+            int found = 0;
+            for (int i = 0; i < boards; i++) {
+                NoGuessGenerator.Result result = generator.generate(difficulty.width, difficulty.height,
+                        difficulty.mines, difficulty.width / 2, difficulty.height / 2, seed + i);
+                if (result.isFound()) {
+                    found++;
+                }
+                attempts.record(result.getAttempts());
+                time.record(result.getNanos());
+            }
+            System.out.printf("%-8s %6.1f%% %10.1f %10d %10d %10.2f %10.2f %10.2f%n", difficulty,
+                    100.0 * found / boards, attempts.getMean(), attempts.getValueAtPercentile(50), attempts.getMax(),
+                    time.getMean() / 1e6, time.getValueAtPercentile(99) / 1e6, time.getMax() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package Minesweeper.main.Benchmark;
+
+import Minesweeper.main.BoardMVC.BoardModel;
+import Minesweeper.main.BoardMVC.BoardService;
+import Minesweeper.main.BoardMVC.DirtyRegion;
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.BoardMVC.RevealEngine;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Проверка параллельной заливки {@link RevealEngine}. Одно и то же поле с разбросанными флагами и знаками вопроса
+ * заливается последовательно и параллельно с низким порогом, после чего сравниваются видимые поля клетка в клетку,
+ * количество открытых клеток и прямоугольник изменений. Проверяются упакованная модель, которую открывают
+ * задачи пула, и модель клеток, которая получает найденные клетки в текущем потоке.
+ * <p>
+ * Параллельная заливка выключена, если в общем пуле один поток, поэтому на машине с одним процессором
+ * проверку запускают с -Djava.util.concurrent.ForkJoinPool.common.parallelism=4.
+ * Запуск: java Minesweeper.main.Benchmark.ParallelRevealReport [наибольший размер] [порог]
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class ParallelRevealReport {
+
+    private static final double[] DENSITIES = {0.01, 0.05, 0.08};
+
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        int threshold = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        System.out.printf("threshold=%d common pool parallelism=%d%n", threshold, parallelism);
+        if (parallelism < 2) {
+            System.out.println("Parallel reveal is disabled with one pool thread, "
+                    + "run with -Djava.util.concurrent.ForkJoinPool.common.parallelism=4");
+            System.exit(1);
+        }
+        System.out.printf("%8s %8s %8s %12s %12s %12s %10s%n", "model", "size", "density", "revealed",
+                "serial ms", "parallel ms", "mismatch");
+        int failures = 0;
+        for (int size = 256; size <= maxSize; size *= 2) {
+            for (double density : DENSITIES) {
+                for (boolean packed : new boolean[]{true, false}) {
+                    if (!packed && size > 1024) {
+                        continue;
+                    }
+                    long seed = size * 31L + (long) (density * 100);
+                    BoardModelInterface serial = createBoard(size, density, packed, seed);
+                    BoardModelInterface parallel = createBoard(size, density, packed, seed);
+                    DirtyRegion serialRegion = new DirtyRegion();
+                    DirtyRegion parallelRegion = new DirtyRegion();
+
+                    long start = System.nanoTime();
+                    int serialRevealed = new RevealEngine(0).reveal(size / 2, size / 2, serial, serialRegion);
+                    double serialMillis = (System.nanoTime() - start) / 1e6;
+                    start = System.nanoTime();
+                    int parallelRevealed = new RevealEngine(threshold).reveal(size / 2, size / 2, parallel,
+                            parallelRegion);
+                    double parallelMillis = (System.nanoTime() - start) / 1e6;
+
+                    int mismatches = compare(serial, parallel);
+                    boolean ok = mismatches == 0 && serialRevealed == parallelRevealed
+                            && serialRegion.getMinX() == parallelRegion.getMinX()
+                            && serialRegion.getMinY() == parallelRegion.getMinY()
+                            && serialRegion.getMaxX() == parallelRegion.getMaxX()
+                            && serialRegion.getMaxY() == parallelRegion.getMaxY();
+                    if (!ok) {
+                        failures++;
+                    }
+                    System.out.printf("%8s %8d %8.2f %12d %12.1f %12.1f %10d %s%n", packed ? "packed" : "cells",
+                            size, density, serialRevealed, serialMillis, parallelMillis, mismatches,
+                            ok ? "" : "FAILED");
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "OK" : "FAILED boards: " + failures);
+        if (failures != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Поле с минами вокруг свободного центра и случайными флагами и знаками вопроса на закрытых клетках.
+     * Отмеченные клетки заливка не открывает
+     */
+    private static BoardModelInterface createBoard(int size, double density, boolean packed, long seed) {
+        BoardModelInterface model = packed ? new PackedBoardModel() : new BoardModel();
+        model.initVisibleBoard(size, size);
+        model.initHiddenBoard(size, size);
+        BoardService service = new BoardService();
+        service.putMinesAtBoard(model, (int) (size * (double) size * density), size / 2, size / 2, seed);
+        service.defineOtherCells(model);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < size * 4; i++) {
+            model.setVisibleCellType(random.nextInt(size), random.nextInt(size),
+                    i % 2 == 0 ? CellType.FLAG : CellType.QUESTION);
+        }
+        model.setVisibleCellType(size / 2, size / 2, CellType.CLOSED);
+        return model;
+    }
+
+    private static int compare(BoardModelInterface a, BoardModelInterface b) {
+        int mismatches = 0;
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                if (a.getVisibleCellType(x, y) != b.getVisibleCellType(x, y)) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+}
@@ -0,0 +1,189 @@
+package Minesweeper.main.Benchmark;
+
+import Minesweeper.main.Difficulty;
+import Minesweeper.main.Metrics.LatencyHistogram;
+import Minesweeper.main.Server.GameServer;
+import Minesweeper.main.Server.SessionRegistry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Генератор нагрузки на сервер игр {@link GameServer}. Клиенты открывают соединения и ведут в каждом по несколько
+ * игр одновременно, открывая клетки в случайном порядке, пока игра не закончится. Законченная игра запрашивается
+ * целиком командой STATE, закрывается, и вместо нее начинается новая. Измеряется задержка каждого запроса
+ * от отправки до получения ответа.
+ * Запуск: java Minesweeper.main.Benchmark.ServerLoadReport [соединений] [игр на соединение] [секунд] [порт]
+ * Без порта сервер запускается в том же процессе на свободном порту
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class ServerLoadReport {
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int gamesPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        GameServer server = null;
+        int port;
+        if (args.length > 3) {
+            port = Integer.parseInt(args[3]);
+        } else {
+            server = new GameServer(0, new SessionRegistry()).start();
+            port = server.getPort();
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Client> clients = new ArrayList<>(connections);
+        List<Thread> threads = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Client client = new Client(port, gamesPerConnection, stop, new SplittableRandom(i));
+            Thread thread = new Thread(client, "load-" + i);
+            clients.add(client);
+            threads.add(thread);
+            thread.start();
+        }
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        int peakSessions = 0;
+        do {
+            Thread.sleep(100);
+            if (server != null) {
+                peakSessions = Math.max(peakSessions, server.getSessions().size());
+            }
+        } while (System.nanoTime() < deadline);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        LatencyHistogram latency = new LatencyHistogram();
+        long games = 0;
+        long errors = 0;
+        for (Client client : clients) {
+            latency.add(client.latency);
+            games += client.games;
+            errors += client.errors;
+        }
+        System.out.printf("connections=%d games/connection=%d seconds=%d%n", connections, gamesPerConnection,
+                seconds);
+        System.out.printf("%12s %12s %12s %12s %10s %10s %10s %8s%n", "sessions", "peak live", "requests",
+                "requests/s", "p50 us", "p99 us", "max us", "errors");
+        System.out.printf("%12d %12s %12d %12.0f %10.1f %10.1f %10.1f %8d%n", games,
+                server != null ? Integer.toString(peakSessions) : "-", latency.getTotalCount(),
+                latency.getTotalCount() / elapsed, latency.getValueAtPercentile(50) / 1e3,
+                latency.getValueAtPercentile(99) / 1e3, latency.getMax() / 1e3, errors);
+        if (server != null) {
+            server.close();
+            server.getSessions().close();
+        }
+    }
+
+    /**
+     * Клиент одного соединения. Игры соединения ходят по очереди, по одному запросу за раз
+     */
+    private static class Client implements Runnable {
+
+        private static final Difficulty DIFFICULTY = Difficulty.EASY;
+
+        private final int port;
+        private final AtomicBoolean stop;
+        private final SplittableRandom random;
+        private final long[] sessions;
+        private final int[][] orders;
+        private final int[] positions;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long games;
+        private long errors;
+
+        private BufferedReader reader;
+        private Writer writer;
+
+        private Client(int port, int gamesPerConnection, AtomicBoolean stop, SplittableRandom random) {
+            this.port = port;
+            this.stop = stop;
+            this.random = random;
+            this.sessions = new long[gamesPerConnection];
+            this.orders = new int[gamesPerConnection][DIFFICULTY.width * DIFFICULTY.height];
+            this.positions = new int[gamesPerConnection];
+        }
+
+        public void run() {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.setTcpNoDelay(true);
+                reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.US_ASCII));
+                writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                        StandardCharsets.US_ASCII));
+                for (int i = 0; i < sessions.length; i++) {
+                    startGame(i);
+                }
+                while (!stop.get()) {
+                    for (int i = 0; i < sessions.length; i++) {
+                        move(i);
+                    }
+                }
+                writer.write("QUIT\n");
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void startGame(int game) throws IOException {
+            String reply = request("NEW " + DIFFICULTY.width + " " + DIFFICULTY.height + " " + DIFFICULTY.mines);
+            sessions[game] = Long.parseLong(reply.substring(3));
+            int[] order = orders[game];
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            positions[game] = 0;
+        }
+
+        /**
+         * Открывает следующую клетку игры. Законченная игра запрашивается целиком, закрывается и начинается заново
+         */
+        private void move(int game) throws IOException {
+            int cell = orders[game][positions[game]++];
+            String reply = request("REVEAL " + sessions[game] + " " + cell % DIFFICULTY.width + " "
+                    + cell / DIFFICULTY.width);
+            if (reply.startsWith("OK IN_PROCESS") && positions[game] < orders[game].length) {
+                return;
+            }
+            request("STATE " + sessions[game]);
+            request("CLOSE " + sessions[game]);
+            games++;
+            startGame(game);
+        }
+
+        private String request(String command) throws IOException {
+            long start = System.nanoTime();
+            writer.write(command);
+            writer.write('\n');
+            writer.flush();
+            String reply = reader.readLine();
+            latency.record(System.nanoTime() - start);
+            if (reply == null) {
+                throw new IOException("Server closed the connection");
+            }
+            if (!reply.startsWith("OK")) {
+                errors++;
+            }
+            return reply;
+        }
+    }
+}
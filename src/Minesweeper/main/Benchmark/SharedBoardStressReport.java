@@ -0,0 +1,178 @@
+package Minesweeper.main.Benchmark;
+
+import Minesweeper.main.BoardMVC.ConcurrentBoardModel;
+import Minesweeper.main.CellType;
+import Minesweeper.main.Engine.SharedGame;
+import Minesweeper.main.GameStatus;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочная проверка совместной игры {@link SharedGame}. Все потоки одновременно проходят одно поле, каждый
+ * в своем случайном порядке: открывают каждую безопасную клетку и переключают отметку на каждой мине. Заливки
+ * разных потоков пересекаются, а отметки мин меняются в тех же элементах массива, что и открываемые соседние клетки.
+ * Те же ходы затем выполняются одним потоком на таком же поле. Проверяется, что поля совпадают клетка в клетку,
+ * что каждая клетка открыта ровно одним ходом и что игра выиграна.
+ * <p>
+ * После конца игры отметки не переключаются, поэтому одна цифра, до которой не доходит ни одна заливка,
+ * открывается последней, когда все потоки закончили. Так все переключения отметок выполняются во время игры.
+ * Запуск: java Minesweeper.main.Benchmark.SharedBoardStressReport [размер] [доля мин] [потоков] [повторов].
+ * Сборка Maven запускает проверку с параметрами по умолчанию в фазе test, код выхода 1 при несовпадении валит
+ * сборку
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class SharedBoardStressReport {
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        double density = args.length > 1 ? Double.parseDouble(args[1]) : 0.12;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        int mines = (int) (size * size * density);
+        System.out.printf("board=%dx%d mines=%d threads=%d%n", size, size, mines, threads);
+        System.out.printf("%6s %12s %12s %12s %10s %10s %8s%n", "round", "shared ms", "single ms", "revealed",
+                "recounted", "mismatch", "status");
+        int failures = 0;
+        for (int round = 0; round < rounds; round++) {
+            long seed = 42 + round;
+            SharedGame shared = new SharedGame(size, size, mines, seed, size / 2, size / 2);
+            int last = enclosedCell(shared.getModel());
+            AtomicLong returned = new AtomicLong();
+            long start = System.nanoTime();
+            runConcurrently(shared, threads, seed, last, returned);
+            returned.addAndGet(shared.reveal(last % size, last / size));
+            double sharedMillis = (System.nanoTime() - start) / 1e6;
+
+            SharedGame single = new SharedGame(size, size, mines, seed, size / 2, size / 2);
+            start = System.nanoTime();
+            for (int thread = 0; thread < threads; thread++) {
+                play(single, thread, seed, last, new AtomicLong());
+            }
+            single.reveal(last % size, last / size);
+            double singleMillis = (System.nanoTime() - start) / 1e6;
+
+            int mismatches = compare(shared.getModel(), single.getModel());
+            long recounted = countRevealed(shared.getModel());
+            boolean ok = mismatches == 0 && returned.get() == shared.getSafeCells()
+                    && shared.getRevealedCells() == shared.getSafeCells() && recounted == shared.getSafeCells()
+                    && shared.getGameStatus() == GameStatus.WIN && single.getGameStatus() == GameStatus.WIN;
+            if (!ok) {
+                failures++;
+            }
+            System.out.printf("%6d %12.1f %12.1f %12d %10d %10d %8s%n", round, sharedMillis, singleMillis,
+                    returned.get(), recounted, mismatches, shared.getGameStatus());
+        }
+        System.out.println(failures == 0 ? "OK" : "FAILED rounds: " + failures);
+        if (failures != 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void runConcurrently(SharedGame game, int threads, long seed, int last, AtomicLong returned)
+            throws InterruptedException {
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            workers[i] = new Thread(() -> {
+                try {
+                    barrier.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                play(game, thread, seed, last, returned);
+            }, "player-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Ходы одного игрока: все клетки поля, кроме последней, в случайном порядке, своем для каждого игрока
+     */
+    private static void play(SharedGame game, int thread, long seed, int last, AtomicLong returned) {
+        ConcurrentBoardModel model = game.getModel();
+        int width = model.getWidth();
+        int[] order = new int[width * model.getHeight()];
+        SplittableRandom random = new SplittableRandom(seed * 31 + thread);
+        for (int i = 0; i < order.length; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        long revealed = 0;
+        for (int cell : order) {
+            if (cell == last) {
+                continue;
+            }
+            int x = cell % width;
+            int y = cell / width;
+            if (model.getHiddenCellType(x, y) == CellType.MINE) {
+                game.flag(x, y);
+            } else {
+                revealed += game.reveal(x, y);
+            }
+        }
+        returned.addAndGet(revealed);
+    }
+
+    /**
+     * Безопасная клетка, среди соседей которой нет пустых, поэтому ее не откроет ни одна заливка
+     */
+    private static int enclosedCell(ConcurrentBoardModel model) {
+        int width = model.getWidth();
+        int height = model.getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                CellType cellType = model.getHiddenCellType(x, y);
+                if (cellType == CellType.MINE || cellType == CellType.EMPTY) {
+                    continue;
+                }
+                boolean enclosed = true;
+                for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, height - 1) && enclosed; j++) {
+                    for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+                        if (model.getHiddenCellType(i, j) == CellType.EMPTY) {
+                            enclosed = false;
+                            break;
+                        }
+                    }
+                }
+                if (enclosed) {
+                    return y * width + x;
+                }
+            }
+        }
+        throw new IllegalStateException("Every safe cell can be reached by a flood fill, use more mines");
+    }
+
+    private static int compare(ConcurrentBoardModel a, ConcurrentBoardModel b) {
+        int mismatches = 0;
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                if (a.getVisibleCellType(x, y) != b.getVisibleCellType(x, y)) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static long countRevealed(ConcurrentBoardModel model) {
+        long count = 0;
+        for (int y = 0; y < model.getHeight(); y++) {
+            for (int x = 0; x < model.getWidth(); x++) {
+                if (!model.getVisibleCellType(x, y).isClosed()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
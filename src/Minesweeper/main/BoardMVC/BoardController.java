@@ -1,13 +1,34 @@
 package Minesweeper.main.BoardMVC;
 
 import Minesweeper.main.*;
+import Minesweeper.main.Engine.AutoSaver;
+import Minesweeper.main.Engine.GameEngine;
+import Minesweeper.main.Engine.GameJournal;
+import Minesweeper.main.Engine.GameSnapshot;
+import Minesweeper.main.Engine.GenerationMode;
+import Minesweeper.main.Engine.LayoutPool;
+import Minesweeper.main.Engine.MoveResult;
+import Minesweeper.main.Engine.NoGuessGenerator;
+import Minesweeper.main.Engine.UndoHistory;
+import Minesweeper.main.Metrics.GameMetrics;
+import Minesweeper.main.Metrics.Metric;
+import Minesweeper.main.Solver.ConstraintSolver;
+import Minesweeper.main.Solver.ProbabilityMap;
 
 import javax.swing.*;
+import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
- * Данный класс представляет из себя контроллер панели для обработки любых событий/изменений, запрашиваемых из вида
+ * Данный класс представляет из себя контроллер панели для обработки любых событий/изменений, запрашиваемых из вида.
+ * Игровая логика выполняется движком {@link GameEngine}, контроллер переводит события мыши и меню в ходы движка
+ * и показывает их результат
  *
  * @author Кристина Зеленько
  * @version 1.0
@@ -16,30 +37,96 @@ import java.awt.event.MouseEvent;
 public class BoardController implements ControllerInterface {
 
     /**
-     * Модель игрового поля
+     * Вид игрового поля
      */
-    private BoardModelInterface model;
+    private BoardView view;
 
     /**
-     * Вид игрового поля
+     * Движок текущей игры
      */
-    private BoardView view;
+    private GameEngine engine;
+
+    /**
+     * Движок обычного поля, работающий с моделью, переданной при создании контроллера, и движок бесконечного поля.
+     * Текущий движок выбирается в зависимости от сложности игры
+     */
+    private GameEngine boundedEngine;
+    private GameEngine endlessEngine = new GameEngine(new ChunkedBoardModel());
+
+    /**
+     * Сложность текущей игры. По умолчанию сложность легкая
+     *
+     * @see Difficulty
+     */
+    private Difficulty difficulty = Difficulty.EASY;
+
+    /**
+     * Размеры поля и количество мин текущей игры: параметры стандартной сложности или заданные игроком
+     * для пользовательской. Хранятся в контроллере, а не в {@link Difficulty#CUSTOM}, чтобы у каждого окна
+     * были свои параметры
+     */
+    private int width = difficulty.width;
+    private int height = difficulty.height;
+    private int mines = difficulty.mines;
+
+    /**
+     * Прямоугольник клеток, измененных действием игрока вместе с автоматически открытыми клетками
+     */
+    private final DirtyRegion changedCells = new DirtyRegion();
+
+    /**
+     * Кнопки, одновременное нажатие которых означает аккорд, и признак того, что аккорд уже сделан отпусканием первой
+     * из них. Отпускание второй кнопки после аккорда игнорируется
+     */
+    private static final int CHORD_BUTTONS = MouseEvent.BUTTON1_DOWN_MASK | MouseEvent.BUTTON3_DOWN_MASK;
+    private boolean chordReleased;
+
+    /**
+     * Журнал текущей игры и журнал предыдущей игры. Журналы меняются местами при начале новой игры
+     */
+    private GameJournal journal = new GameJournal();
+    private GameJournal lastJournal;
+
+    /**
+     * Воспроизведение игры из журнала. Пока оно идет, действия игрока на поле игнорируются
+     */
+    private ReplayPlayer replayPlayer;
 
     /**
-     * Сервис игрового поля
+     * Автосохранение текущей игры или null, если оно выключено. Таймер срабатывает в потоке обработки событий
+     * и только снимает копию игры, файл записывается в фоне. Сохраняется игра, в которой были ходы после
+     * предыдущего сохранения
      */
-    private BoardService service;
+    private AutoSaver autoSaver;
+    private long savedMoveCount = -1;
 
     /**
-     * Сервис обработки событий игрового поля
+     * Наименьшее число клеток обычного поля, начиная с которого открытия, аккорды, подсказки и отмены выполняются
+     * в фоновом потоке. Задается параметром -Dminesweeper.asyncCells. На меньших полях ход занимает доли миллисекунды
+     * и выполняется сразу в потоке обработки событий
      */
-    private BoardListenerService listenerService;
+    private static final int ASYNC_CELLS = Integer.getInteger("minesweeper.asyncCells", 1 << 16);
 
     /**
-     * Данная переменная используется для определения первого клика, после которого начинается генерация игрового поля.
-     * Таким образом, игрок не начнет игру, нажав на мину
+     * Поток, в котором выполняются долгие ходы: создание большого поля и заливка. Поток один, поэтому ходы
+     * не могут выполняться одновременно
      */
-    private int clickCount = 0;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "board-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Идет ход в фоновом потоке. Пока он не закончен, движок не трогается из потока обработки событий, а действия
+     * игрока отклоняются
+     */
+    private boolean busy;
+
+    /**
+     * Результат поиска поля без угадывания, о котором игрок уже знает
+     */
+    private NoGuessGenerator.Result reportedGeneration;
 
     /**
      * Конструктор - инициализирует поля класса для дальнейшего взаимодействия с ними, начинает игру
@@ -48,24 +135,58 @@ public class BoardController implements ControllerInterface {
      * @see BoardView#initGame();
      */
     public BoardController(BoardModelInterface model) {
-        this.model = model;
+        boundedEngine = new GameEngine(model);
+        if (LayoutPool.DEFAULT_SIZE > 0) {
+            boundedEngine.setLayoutPool(new LayoutPool());
+        }
+        boundedEngine.setUndoHistory(new UndoHistory());
+        boundedEngine.setMetrics(true);
+        endlessEngine.setMetrics(true);
+        // обычное поле решатель догоняет при первом обращении, бесконечное - нет, поэтому он подключается сразу
+        endlessEngine.getSolver();
+        engine = boundedEngine;
         view = new BoardView(this, model);
-        service = new BoardService();
-        listenerService = new BoardListenerService();
+        GameSnapshot resumed = null;
+        if (AutoSaver.DEFAULT_PERIOD > 0) {
+            autoSaver = new AutoSaver(AutoSaver.defaultFile());
+            resumed = readAutosave();
+            new Timer(AutoSaver.DEFAULT_PERIOD * 1000, event -> autosave()).start();
+        }
         view.initGame();
+        if (resumed != null && JOptionPane.showConfirmDialog(view.panel, "Resume the unfinished game?",
+                "Minesweeper", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+            loadGame(resumed);
+        }
     }
 
     /**
      * Метод генерации видимого поля. Параметры регулируются заданной сложностью игры {@link Difficulty}.
-     * Все клетки поля типа CellType.CLOSED
+     * Все клетки поля типа CellType.CLOSED. Начинает новую игру движка в режиме без угадывания, если он выбран в меню.
+     * Журнал начатой игры сохраняется для воспроизведения, воспроизведение прекращается, автосохранение предыдущей
+     * игры удаляется
      *
      * @param width  - ширина игрового поля
      * @param height - высота игрового поля
      */
     public void createVisibleBoard(int width, int height) {
-        Cell[][] visibleBoard = service.fillBoard(width, height);
-        service.setCellTypeToCellArray(visibleBoard, CellType.CLOSED);
-        model.setVisibleBoard(visibleBoard);
+        if (replayPlayer != null) {
+            replayPlayer.stop();
+            replayPlayer = null;
+        }
+        if (journal.isStarted()) {
+            GameJournal finished = journal;
+            journal = lastJournal != null ? lastJournal : new GameJournal();
+            lastJournal = finished;
+        }
+        engine.setJournal(journal);
+        if (autoSaver != null) {
+            autoSaver.delete();
+        }
+        savedMoveCount = -1;
+        if (engine.isNoGuess() != view.isNoGuess()) {
+            engine.setNoGuess(view.isNoGuess());
+        }
+        engine.newGame(width, height, mines);
     }
 
     /**
@@ -79,101 +200,503 @@ public class BoardController implements ControllerInterface {
      *                   с первого действия пользователя при генерации невидимого поля учитываются координаты  первого клика
      */
     public void createHiddenBoard(int width, int height, int mines, int exceptOfX, int exceptOfY) {
-        Cell[][] hiddenBoard = service.fillBoard(width, height);
-        service.putMinesAtBoard(hiddenBoard, mines, exceptOfX, exceptOfY);
-        service.defineOtherCells(hiddenBoard);
-        BoardModel.gameStatus = GameStatus.IN_PROCESS;
-        model.setHiddenBoard(hiddenBoard);
+        engine.newGame(width, height, mines);
+        engine.startGame(exceptOfX, exceptOfY);
     }
 
     /**
-     * Метод используется для проверки первого клика и задания момента генерации невидимого поля.
-     * Иначе вызывает метод обработки события
+     * Метод генерации скрытого поля с заданным зерном. Позволяет воспроизвести ранее сыгранное поле
+     *
+     * @param seed - зерно генератора расположения мин
+     * @see BoardController#createHiddenBoard(int, int, int, int, int)
+     */
+    public void createHiddenBoard(int width, int height, int mines, int exceptOfX, int exceptOfY, long seed) {
+        engine.newGame(width, height, mines, seed);
+        engine.startGame(exceptOfX, exceptOfY);
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public int getBoardWidth() {
+        return width;
+    }
+
+    public int getBoardHeight() {
+        return height;
+    }
+
+    public long getSeed() {
+        return engine.getSeed();
+    }
+
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Вероятности мин в закрытых клетках видимой области текущей игры
+     *
+     * @see GameEngine#computeProbabilities(int, int, int, int)
+     */
+    public ProbabilityMap getMineProbabilities() {
+        return computeHeatMap(view.getVisibleCells());
+    }
+
+    /**
+     * Окно карты вероятностей - видимая область, если карта включена, иначе null. Читает вид, поэтому вызывается
+     * в потоке обработки событий до начала хода
+     */
+    private Rectangle heatMapWindow() {
+        return view.isHeatMap() ? view.getVisibleCells() : null;
+    }
+
+    /**
+     * Считает карту вероятностей для окна. На больших полях выполняется в фоновом потоке после хода
+     *
+     * @return карта или null, если окна нет или игра не идет
+     */
+    private ProbabilityMap computeHeatMap(Rectangle cells) {
+        if (cells == null || !engine.isStarted() || engine.getGameStatus() != GameStatus.IN_PROCESS) {
+            return null;
+        }
+        return engine.computeProbabilities(cells.x, cells.y, cells.x + cells.width - 1, cells.y + cells.height - 1);
+    }
+
+    /**
+     * Пересчитывает карту вероятностей, если она включена, и убирает ее, если выключена или игра закончена.
+     * На больших полях карта считается в фоновом потоке {@link BoardController#runMove} как ход без изменений
+     * поля. Ходы воспроизведения не ждут фонового потока, поэтому во время воспроизведения большого поля
+     * карта не показывается
+     */
+    private void updateHeatMap() {
+        Rectangle window = heatMapWindow();
+        if (window == null || !engine.isStarted() || engine.getGameStatus() != GameStatus.IN_PROCESS
+                || isLargeBoard() && isReplaying()) {
+            view.setHeatMap(null);
+        } else if (isLargeBoard()) {
+            runMove(changedCells::clear, true, false);
+        } else {
+            view.setHeatMap(computeHeatMap(window));
+        }
+    }
+
+    /**
+     * Метод переводит событие мыши в ход движка. Скрытое поле создается движком при первом открытии клетки.
+     * Средняя кнопка или отпускание одной из кнопок при зажатой другой делает аккорд: открывает все закрытые соседние
+     * клетки цифры, вокруг которой стоит столько же флагов, одним ходом движка.
+     * В режиме автоматического открытия после хода открываются все клетки, безопасность которых доказана решателем.
+     * Перерисовываются только клетки, измененные ходом. На больших полях ход выполняется в фоновом потоке
+     * {@link BoardController#runMove}, клики во время него отклоняются
      *
      * @param x,    @param y - координаты клика
-     * @param event - передает событие обработчику событий поля
-     * @see BoardController#mouseEventHandler
+     * @param event - событие отпускания кнопки
+     * @see GameEngine
      */
     public void checkUserAction(int x, int y, MouseEvent event) {
-        if (clickCount == 0) {
-            createHiddenBoard(BoardModel.difficulty.width, BoardModel.difficulty.height, BoardModel.difficulty.mines, x, y);
+        if (isReplaying()) {
+            return;
+        }
+        if (chordReleased) {
+            chordReleased = (event.getModifiersEx() & CHORD_BUTTONS) != 0;
+            return;
         }
-        mouseEventHandler(x, y, event, model.getHiddenBoard(), model.getVisibleBoard());
-        clickCount++;
-        isGameWon();
+        if (rejectBusy()) {
+            return;
+        }
+        boolean autoOpen = view.isAutoOpen();
+        boolean mayCascade = true;
+        Supplier<MoveResult> move;
+        if (event.getButton() == MouseEvent.BUTTON2) {
+            move = () -> engine.chord(x, y);
+        } else if ((event.getModifiersEx() & CHORD_BUTTONS) != 0
+                && (event.getButton() == MouseEvent.BUTTON1 || event.getButton() == MouseEvent.BUTTON3)) {
+            chordReleased = true;
+            move = () -> engine.chord(x, y);
+        } else if (event.getButton() == MouseEvent.BUTTON1) {
+            move = () -> engine.reveal(x, y);
+        } else if (event.getButton() == MouseEvent.BUTTON3) {
+            move = () -> engine.flag(x, y);
+            mayCascade = autoOpen;
+        } else {
+            return;
+        }
+        runMove(() -> {
+            long start = GameMetrics.start();
+            MoveResult result = move.get();
+            GameMetrics.recordSince(Metric.MOVE_LATENCY, start);
+            GameMetrics.record(Metric.CELLS_PER_CLICK, result.getRevealedCells());
+            changedCells.clear();
+            addChangedCells(result);
+            if (autoOpen) {
+                openCertainCells();
+            }
+        }, mayCascade, false);
     }
 
     /**
-     * Метод для обработки событий мыши для поля. Распределяет событие и его параметры в методы сервиса обработчика событий
-     * в зависимости от нажатой кнопки
+     * Выполняет ход и показывает его результат. На больших полях ход, который может открыть много клеток,
+     * выполняется в фоновом потоке вместе с расчетом карты вероятностей, а поток обработки событий получает
+     * уже законченное состояние: клетки перерисовываются, карта показывается и статус игры проверяется после
+     * завершения хода.
+     * Пока ход идет, вид показывает индикатор работы и не принимает клики. Исключение или ошибка хода
+     * снимают индикатор и передаются в поток обработки событий
      *
-     * @param x            - координата клика x
-     * @param y            - координата клика y
-     * @param event        - событие клика
-     * @param hiddenBoard  - скрытая доска
-     * @param visibleBoard - видимая доска
-     * @see BoardListenerService
+     * @param move        - ход движка, заполняющий {@link BoardController#changedCells}
+     * @param mayCascade  - ход может открыть много клеток. Ход, который только ставит флаг, выполняется сразу
+     * @param checkStatus - проверить статус игры после хода
      */
-    private void mouseEventHandler(int x, int y, MouseEvent event, Cell[][] hiddenBoard, Cell[][] visibleBoard) {
-        if (event.getButton() == MouseEvent.BUTTON1) {
-            listenerService.onLeftClick(x, y, hiddenBoard, visibleBoard);
-            view.panel.repaint();
+    private void runMove(Runnable move, boolean mayCascade, boolean checkStatus) {
+        runMove(move, mayCascade, checkStatus, null);
+    }
+
+    /**
+     * @param then - действие в потоке обработки событий после того, как результат хода показан. Может быть null
+     */
+    private void runMove(Runnable move, boolean mayCascade, boolean checkStatus, Runnable then) {
+        if (!mayCascade || !isLargeBoard()) {
+            move.run();
+            finishMove(checkStatus);
+            if (then != null) {
+                then.run();
+            }
+            return;
         }
-        if (event.getButton() == MouseEvent.BUTTON3) {
-            listenerService.onRightClick(x, y, visibleBoard);
-            view.panel.repaint();
+        Rectangle window = heatMapWindow();
+        busy = true;
+        view.setBusy(true);
+        worker.execute(() -> {
+            Throwable failure = null;
+            ProbabilityMap computed = null;
+            try {
+                move.run();
+                computed = computeHeatMap(window);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+            Throwable error = failure;
+            ProbabilityMap heatMap = computed;
+            SwingUtilities.invokeLater(() -> {
+                busy = false;
+                view.setBusy(false);
+                if (error instanceof Error) {
+                    throw (Error) error;
+                } else if (error != null) {
+                    throw (RuntimeException) error;
+                }
+                repaintChangedCells();
+                view.setHeatMap(heatMap);
+                checkGameStatus();
+                if (then != null) {
+                    then.run();
+                }
+            });
+        });
+    }
+
+    /**
+     * Ходы на поле от {@link BoardController#ASYNC_CELLS} клеток выполняются в фоновом потоке. Бесконечное поле
+     * меняется участками и всегда обрабатывается сразу
+     */
+    private boolean isLargeBoard() {
+        return !(engine.getModel() instanceof ChunkedBoardModel)
+                && (long) engine.getWidth() * engine.getHeight() >= ASYNC_CELLS;
+    }
+
+    /**
+     * Перерисовывает клетки, измененные ходом, и пересчитывает карту вероятностей
+     */
+    private void finishMove(boolean checkStatus) {
+        repaintChangedCells();
+        updateHeatMap();
+        if (checkStatus) {
+            checkGameStatus();
+        }
+    }
+
+    private void repaintChangedCells() {
+        long start = GameMetrics.start();
+        view.repaintCells(changedCells);
+        GameMetrics.recordSince(Metric.REPAINT_LATENCY, start);
+    }
+
+    /**
+     * Отклоняет действие игрока, пока в фоновом потоке идет ход
+     *
+     * @return true, если действие отклонено
+     */
+    private boolean rejectBusy() {
+        if (busy) {
+            Toolkit.getDefaultToolkit().beep();
         }
+        return busy;
     }
 
     /**
-     * Метод вызывается после каждого клика для проверки статуса игры, проверяя все поле и сопостовляя количество
-     * клеток со знаками вопроса, флагов и закрытых клеток с количеством мин, определенным для данной сложности игры
+     * Подсказка: открывает клетку, безопасность которой доказана решателем, а если таких нет - отмечает флагом
+     * найденную мину. Если решатель ничего не нашел, сообщает игроку, что придется угадывать. Решатель
+     * на большом поле работает долго, поэтому подсказка выполняется как ход {@link BoardController#runMove}
      */
-    private void isGameWon() {
-        int count = service.getSize(model.getVisibleBoard());
-        for (Cell[] cells : model.getVisibleBoard()) {
-            for (Cell cell : cells) {
-                if (cell.getCellType() != CellType.FLAG && cell.getCellType() != CellType.CLOSED
-                        && cell.getCellType() != CellType.QUESTION) {
-                    count--;
+    private void hint() {
+        if (isReplaying() || rejectBusy()) {
+            return;
+        }
+        runMove(() -> {
+            changedCells.clear();
+            ConstraintSolver solver = engine.getSolver();
+            long cell = solver.nextSafeCell();
+            if (cell != ConstraintSolver.NONE) {
+                addChangedCells(engine.reveal(ConstraintSolver.keyX(cell), ConstraintSolver.keyY(cell)));
+            } else if ((cell = solver.nextMineCell()) != ConstraintSolver.NONE) {
+                int x = ConstraintSolver.keyX(cell);
+                int y = ConstraintSolver.keyY(cell);
+                MoveResult result = engine.flag(x, y);
+                if (engine.getVisibleCellType(x, y) == CellType.CLOSED) {
+                    // клетка была отмечена знаком вопроса
+                    result = engine.flag(x, y);
                 }
+                addChangedCells(result);
             }
+        }, true, true, () -> {
+            // подсказка без изменений поля - решатель ничего не нашел
+            if (changedCells.isEmpty()) {
+                JOptionPane.showMessageDialog(view.panel, "There are no certain cells, you have to guess", "Hint",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+    }
+
+    /**
+     * Отменяет или повторяет последний ход и перерисовывает измененные клетки. На бесконечном поле история
+     * не ведется
+     *
+     * @param undo - true для отмены, false для повтора
+     * @see GameEngine#undo()
+     */
+    private void undoMove(boolean undo) {
+        if (isReplaying() || rejectBusy()) {
+            return;
+        }
+        runMove(() -> {
+            MoveResult result = undo ? engine.undo() : engine.redo();
+            changedCells.clear();
+            addChangedCells(result);
+        }, true, !undo);
+    }
+
+    /**
+     * Открывает все клетки, безопасность которых доказана решателем, пока игра продолжается и такие клетки находятся.
+     * Вызывается только внутри хода {@link BoardController#runMove}, поэтому на больших полях решатель работает
+     * в фоновом потоке
+     */
+    private void openCertainCells() {
+        ConstraintSolver solver = engine.getSolver();
+        long cell;
+        while (engine.getGameStatus() == GameStatus.IN_PROCESS
+                && (cell = solver.nextSafeCell()) != ConstraintSolver.NONE) {
+            addChangedCells(engine.reveal(ConstraintSolver.keyX(cell), ConstraintSolver.keyY(cell)));
+        }
+    }
+
+    /**
+     * Воспроизводит в реальном времени текущую игру или, если в ней еще не было ходов, предыдущую. Сложность игры
+     * меняется на сложность записанной игры
+     *
+     * @see ReplayPlayer
+     */
+    private void replayGame() {
+        GameJournal replay = journal.isStarted() ? journal : lastJournal;
+        if (replay == null || !replay.isStarted()) {
+            JOptionPane.showMessageDialog(view.panel, "There is no game to replay", "Replay",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        Difficulty replayDifficulty = difficultyOf(replay);
+        if (replayDifficulty == Difficulty.CUSTOM) {
+            selectCustom(replay.getWidth(), replay.getHeight(), replay.getMines());
+        } else {
+            selectDifficulty(replayDifficulty);
+        }
+        view.initGame();
+        replayPlayer = new ReplayPlayer(engine, replay, result -> {
+            changedCells.clear();
+            addChangedCells(result);
+            view.repaintCells(changedCells);
+            updateHeatMap();
+        });
+        replayPlayer.start();
+    }
+
+    private boolean isReplaying() {
+        return replayPlayer != null && replayPlayer.isRunning();
+    }
+
+    /**
+     * Сложность с размерами и количеством мин записанной игры. Если стандартной такой нет, игра воспроизводится
+     * с пользовательской сложностью
+     */
+    private static Difficulty difficultyOf(GameJournal journal) {
+        if (journal.getGenerationMode() == GenerationMode.ENDLESS) {
+            return Difficulty.ENDLESS;
         }
-        if (count == BoardModel.difficulty.mines) {
-            BoardModel.gameStatus = GameStatus.WIN;
+        for (Difficulty difficulty : new Difficulty[]{Difficulty.EASY, Difficulty.NORMAL, Difficulty.HARD}) {
+            if (difficulty.width == journal.getWidth() && difficulty.height == journal.getHeight()
+                    && difficulty.mines == journal.getMines()) {
+                return difficulty;
+            }
+        }
+        return Difficulty.CUSTOM;
+    }
+
+    /**
+     * Сохраняет текущую игру в выбранный игроком файл
+     *
+     * @see GameSnapshot
+     */
+    private void saveGame() {
+        if (engine.getModel() instanceof ChunkedBoardModel) {
+            JOptionPane.showMessageDialog(view.panel, "Endless games cannot be saved", "Save",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(view.panel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            engine.snapshot(difficulty).write(chooser.getSelectedFile().toPath());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(view.panel, e.getMessage(), "Save", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Загружает игру из выбранного игроком файла
+     */
+    private void openGame() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(view.panel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            loadGame(GameSnapshot.read(chooser.getSelectedFile().toPath()));
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(view.panel, e.getMessage(), "Load", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Продолжает сохраненную игру: выбирает ее сложность, перезапускает вид и восстанавливает поля в движке
+     */
+    private void loadGame(GameSnapshot snapshot) {
+        if (snapshot.getDifficulty() == Difficulty.ENDLESS) {
+            return;
+        }
+        if (snapshot.getDifficulty() == Difficulty.CUSTOM) {
+            selectCustom(snapshot.getWidth(), snapshot.getHeight(), snapshot.getMines());
+        } else {
+            selectDifficulty(snapshot.getDifficulty());
+        }
+        view.initGame();
+        engine.restore(snapshot);
+        changedCells.clear();
+        changedCells.addAll(engine.getWidth(), engine.getHeight());
+        view.repaintCells(changedCells);
+        updateHeatMap();
+    }
+
+    /**
+     * Ставит снимок текущей игры в очередь автосохранения, если в ней были ходы после предыдущего сохранения.
+     * Закончившиеся игры и бесконечное поле не сохраняются
+     */
+    private void autosave() {
+        if (busy || engine.getModel() instanceof ChunkedBoardModel || !engine.isStarted() || isReplaying()
+                || engine.getGameStatus() != GameStatus.IN_PROCESS || engine.getMoveCount() == savedMoveCount) {
+            return;
+        }
+        autoSaver.submit(engine.snapshot(difficulty));
+        savedMoveCount = engine.getMoveCount();
+    }
+
+    /**
+     * Читает автосохранение прошлого запуска
+     *
+     * @return снимок или null, если его нет или он поврежден
+     */
+    private GameSnapshot readAutosave() {
+        if (!Files.exists(autoSaver.getFile())) {
+            return null;
+        }
+        try {
+            return GameSnapshot.read(autoSaver.getFile());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void addChangedCells(MoveResult result) {
+        DirtyRegion region = result.getChangedCells();
+        if (!region.isEmpty()) {
+            changedCells.add(region.getMinX(), region.getMinY());
+            changedCells.add(region.getMaxX(), region.getMaxY());
+        }
+    }
+
+    /**
+     * Сообщает игроку, что поле без угадывания не найдено и игра идет на обычном поле. Сообщение показывается
+     * один раз за игру, после хода, создавшего поле
+     */
+    private void reportGeneration() {
+        NoGuessGenerator.Result generation = engine.getLastGeneration();
+        if (generation == null || generation == reportedGeneration) {
+            return;
+        }
+        reportedGeneration = generation;
+        if (!generation.isFound()) {
+            JOptionPane.showMessageDialog(view.panel, String.format("No board without guessing was found in %.1f s"
+                            + " (%d candidates), this is a normal board", generation.getNanos() / 1e9,
+                    generation.getEvaluated()), "No guessing", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
     /**
      * Метод, проверяющий текущий статус игры и выводящий сообщения в случае проигрыша или выигрыша, которые
-     * предоставляют игроку возможность начать игру снова. Если игрок согласен, сбрасывается счетчик кликов и
-     * инициализация игры вызывается снова.
+     * предоставляют игроку возможность начать игру снова, а после проигрыша - отменить проигрышный ход. Если игрок согласен, инициализация игры вызывается снова.
+     * Статус определяется движком после каждого хода, поэтому проверка не зависит от размера поля
      *
      * @see BoardView#initGame()
      */
     public void checkGameStatus() {
-        isGameWon();
-        switch (BoardModel.gameStatus) {
+        if (busy) {
+            // статус проверяется после завершения хода в фоновом потоке
+            return;
+        }
+        reportGeneration();
+        if (autoSaver != null && engine.getGameStatus() != GameStatus.IN_PROCESS) {
+            autoSaver.delete();
+        }
+        switch (engine.getGameStatus()) {
             case WIN:
                 String[] options = new String[]{"Yes", "No"};
                 int response = JOptionPane.showOptionDialog(view.panel, "Congratulations! Start again?"
                         , "Winner!", JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE,
                         null, options, options[0]);
                 if (response == 0) {
-                    clickCount = 0;
                     view.initGame();
                 } else {
                     System.exit(0);
                 }
                 return;
             case LOSE:
-                String[] options2 = new String[]{"Yes", "No"};
+                String[] options2 = new String[]{"Yes", "No", "Undo"};
                 int responses = JOptionPane.showOptionDialog(view.panel, "Game Over. Start again?"
                         , "GameOver", JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE,
                         null, options2, options2[0]);
                 if (responses == 0) {
-                    clickCount = 0;
                     view.initGame();
+                } else if (responses == 2) {
+                    undoMove(true);
                 } else {
                     System.exit(0);
                 }
@@ -185,33 +708,114 @@ public class BoardController implements ControllerInterface {
     /**
      * Метод обрабатывает следующие события меню:
      * New - начинает новую игру
+     * Undo, Redo - отменяет и повторяет ход {@link GameEngine#undo()}
+     * Replay - воспроизводит текущую или предыдущую игру {@link ReplayPlayer}
+     * Save, Load - сохраняет игру в файл и загружает ее {@link GameSnapshot}
      * Exit - закрывает программу
      * Easy, Normal, Hard - меняет сложность игры {@link Difficulty}
-     * После каждого случая, кроме Exit, игра перезапускается {@link BoardView#initGame()}
+     * Custom - запрашивает у игрока размеры поля и количество мин {@link Difficulty#CUSTOM}
+     * Endless - начинает игру на бесконечном поле {@link Difficulty#ENDLESS}
+     * Hint - делает ход, доказанный решателем {@link ConstraintSolver}
+     * Heat map - показывает или убирает карту вероятностей мин
+     * После каждого случая, кроме Exit, Undo, Redo, Save, Hint и Heat map, игра перезапускается {@link BoardView#initGame()}.
+     * Пока в фоновом потоке идет ход, отклоняются все события, кроме Exit
      */
     public void checkActionPerformed(ActionEvent event) {
+        if (!"Exit".equals(event.getActionCommand()) && rejectBusy()) {
+            return;
+        }
         switch (event.getActionCommand()) {
             case "New":
                 view.initGame();
-                clickCount = 0;
                 return;
             case "Exit":
                 view.exitGame();
-                clickCount = 0;
+                return;
             case "Easy":
-                BoardModel.difficulty = Difficulty.EASY;
-                view.initGame();
-                clickCount = 0;
+                changeDifficulty(Difficulty.EASY);
                 return;
             case "Normal":
-                BoardModel.difficulty = Difficulty.NORMAL;
-                view.initGame();
-                clickCount = 0;
+                changeDifficulty(Difficulty.NORMAL);
                 return;
             case "Hard":
-                BoardModel.difficulty = Difficulty.HARD;
+                changeDifficulty(Difficulty.HARD);
+                return;
+            case "Endless":
+                changeDifficulty(Difficulty.ENDLESS);
+                return;
+            case "Undo":
+                undoMove(true);
+                return;
+            case "Redo":
+                undoMove(false);
+                return;
+            case "Save":
+                saveGame();
+                return;
+            case "Load":
+                openGame();
+                return;
+            case "Replay":
+                replayGame();
+                return;
+            case "Hint":
+                hint();
+                return;
+            case "Heat map":
+                updateHeatMap();
+                return;
+            case "Custom":
+                int[] custom = difficulty == Difficulty.CUSTOM
+                        ? view.askCustomDifficulty(width, height, mines)
+                        : view.askCustomDifficulty(Difficulty.CUSTOM.width, Difficulty.CUSTOM.height,
+                        Difficulty.CUSTOM.mines);
+                if (custom == null) {
+                    return;
+                }
+                try {
+                    selectCustom(custom[0], custom[1], custom[2]);
+                } catch (IllegalArgumentException e) {
+                    JOptionPane.showMessageDialog(view.panel, e.getMessage(), "Custom", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 view.initGame();
-                clickCount = 0;
         }
     }
+
+    /**
+     * Метод меняет сложность игры, выбирает соответствующий ей движок и перезапускает игру
+     *
+     * @param difficulty - новая сложность
+     */
+    private void changeDifficulty(Difficulty difficulty) {
+        selectDifficulty(difficulty);
+        view.initGame();
+    }
+
+    /**
+     * Метод меняет сложность игры и выбирает соответствующий ей движок без перезапуска игры
+     */
+    private void selectDifficulty(Difficulty difficulty) {
+        selectBoard(difficulty, difficulty.width, difficulty.height, difficulty.mines);
+    }
+
+    /**
+     * Выбирает пользовательскую сложность с заданными параметрами без перезапуска игры
+     *
+     * @throws IllegalArgumentException если параметры вне допустимых границ
+     * @see Difficulty#checkCustom
+     */
+    private void selectCustom(int width, int height, int mines) {
+        Difficulty.checkCustom(width, height, mines);
+        selectBoard(Difficulty.CUSTOM, width, height, mines);
+    }
+
+    private void selectBoard(Difficulty difficulty, int width, int height, int mines) {
+        this.difficulty = difficulty;
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        engine = difficulty == Difficulty.ENDLESS ? endlessEngine : boundedEngine;
+        view.setModel(engine.getModel());
+    }
 }
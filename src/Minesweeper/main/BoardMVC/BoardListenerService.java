@@ -1,8 +1,10 @@
 package Minesweeper.main.BoardMVC;
 
+import Minesweeper.main.BoardModelInterface;
 import Minesweeper.main.CellType;
-
-import java.util.List;
+import Minesweeper.main.GameStatus;
+import Minesweeper.main.Metrics.GameMetrics;
+import Minesweeper.main.Metrics.Metric;
 
 /**
  * Класс-сервис, осуществляющий обработку событий поля, взаимодействует с сервисом генерации и обработки игрового поля
@@ -14,67 +16,216 @@ public class BoardListenerService {
 
     private BoardService service = new BoardService();
 
+    private RevealEngine revealEngine = new RevealEngine();
+
+    /**
+     * Прямоугольник клеток видимого поля, измененных с момента последней очистки
+     */
+    private DirtyRegion dirtyRegion = new DirtyRegion();
+
+    /**
+     * Количество еще не открытых безопасных клеток текущей игры. Уменьшается при каждом открытии клетки, игра выиграна,
+     * когда счетчик достигает нуля. Флаги и знаки вопроса клетку не открывают, поэтому счетчик не меняют
+     *
+     * @see BoardListenerService#startGame
+     */
+    private int unrevealedSafeCells;
+
+    /**
+     * Статус текущей игры. Меняется на LOSE при открытии мины и на WIN, когда открыты все безопасные клетки
+     *
+     * @see GameStatus
+     */
+    private GameStatus gameStatus = GameStatus.IN_PROCESS;
+
+    /**
+     * Записывать ли размер заливки в {@link GameMetrics}
+     */
+    private boolean metrics;
+
+    /**
+     * Метод сбрасывает счетчик неоткрытых безопасных клеток и статус в начале игры, когда все клетки видимого поля
+     * закрыты
+     *
+     * @param cells - количество клеток поля
+     * @param mines - количество мин на поле
+     */
+    public void startGame(int cells, int mines) {
+        unrevealedSafeCells = cells - mines;
+        gameStatus = GameStatus.IN_PROCESS;
+    }
+
+    /**
+     * Восстанавливает счетчик и статус сохраненной игры
+     *
+     * @param unrevealedSafeCells - количество неоткрытых безопасных клеток
+     * @param gameStatus          - статус игры
+     */
+    public void restoreGame(int unrevealedSafeCells, GameStatus gameStatus) {
+        this.unrevealedSafeCells = unrevealedSafeCells;
+        this.gameStatus = gameStatus;
+    }
+
+    public int getUnrevealedSafeCells() {
+        return unrevealedSafeCells;
+    }
+
+    public GameStatus getGameStatus() {
+        return gameStatus;
+    }
+
+    /**
+     * Возвращает прямоугольник клеток, измененных обработчиками событий. Вызывающая сторона очищает его после
+     * перерисовки
+     */
+    public DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+
+    public void setMetrics(boolean metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Метод подсчитывает неоткрытые безопасные клетки полным обходом поля. Используется для проверки счетчика
+     * в режиме отладки
+     *
+     * @param model - модель игрового поля
+     * @return количество закрытых клеток, под которыми нет мины
+     */
+    public int countUnrevealedSafeCells(BoardModelInterface model) {
+        int count = 0;
+        for (int x = 0; x < model.getWidth(); x++) {
+            for (int y = 0; y < model.getHeight(); y++) {
+                if (model.getVisibleCellType(x, y).isClosed() && model.getHiddenCellType(x, y) != CellType.MINE) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Метод обрабатывает события при нажатии левой кнопки мыши. Проверка осуществляется по всем возможным типам кнопок
      * для данного поля
      *
-     * @param x,           @param y - координаты события на панели
-     * @param hiddenBoard  - скрытое поле
-     * @param visibleBoard - видимое поле
+     * @param x,    @param y - координаты события на панели
+     * @param model - модель игрового поля
+     * @return количество открытых этим нажатием безопасных клеток
      */
-    public void onLeftClick(int x, int y, Cell[][] hiddenBoard, Cell[][] visibleBoard) {
-        if (visibleBoard[x][y].getCellType() != CellType.FLAG) {
-            switch (hiddenBoard[x][y].getCellType()) {
-                case EMPTY:
-                    visibleBoard[x][y] = hiddenBoard[x][y];
-                    openAroundEmptyCell(x, y, hiddenBoard, visibleBoard);
-                    return;
-                case MINE:
-                    visibleBoard[x][y].setCellType(CellType.MINE_BLOW);
-                    service.gameOver(hiddenBoard, visibleBoard);
-                    service.checkWrongFlags(visibleBoard);
-                    return;
-                default:
+    public int onLeftClick(int x, int y, BoardModelInterface model) {
+        int revealed = openCell(x, y, model);
+        updateStatus(revealed);
+        return revealed;
+    }
+
+    /**
+     * Метод открывает все закрытые клетки вокруг открытой цифры, если количество флагов вокруг нее равно цифре.
+     * Если флаг стоит не на мине, открывается мина и игра проигрывается обычным образом
+     *
+     * @param x,    @param y - координаты открытой цифры
+     * @param model - модель игрового поля
+     * @return количество открытых безопасных клеток
+     */
+    public int onChord(int x, int y, BoardModelInterface model) {
+        int number = model.getVisibleCellType(x, y).ordinal();
+        if (number < CellType.ONE.ordinal() || number > CellType.EIGHT.ordinal()) {
+            return 0;
+        }
+        int fromX = Math.max(x - 1, 0);
+        int toX = Math.min(x + 1, model.getWidth() - 1);
+        int fromY = Math.max(y - 1, 0);
+        int toY = Math.min(y + 1, model.getHeight() - 1);
+        int flags = 0;
+        for (int i = fromX; i <= toX; i++) {
+            for (int j = fromY; j <= toY; j++) {
+                if (model.getVisibleCellType(i, j) == CellType.FLAG) {
+                    flags++;
+                }
+            }
+        }
+        if (flags != number) {
+            return 0;
+        }
+        int revealed = 0;
+        for (int i = fromX; i <= toX && gameStatus == GameStatus.IN_PROCESS; i++) {
+            for (int j = fromY; j <= toY && gameStatus == GameStatus.IN_PROCESS; j++) {
+                if (model.getVisibleCellType(i, j).isClosed()) {
+                    revealed += openCell(i, j, model);
+                }
             }
-            visibleBoard[x][y] = hiddenBoard[x][y];
         }
+        updateStatus(revealed);
+        return revealed;
+    }
+
+    /**
+     * Учитывает открытые клетки и определяет выигрыш. Проверка не зависит от размера поля
+     */
+    private void updateStatus(int revealed) {
+        unrevealedSafeCells -= revealed;
+        if (unrevealedSafeCells == 0 && gameStatus == GameStatus.IN_PROCESS) {
+            gameStatus = GameStatus.WIN;
+        }
+    }
+
+    private int openCell(int x, int y, BoardModelInterface model) {
+        CellType visibleCellType = model.getVisibleCellType(x, y);
+        if (visibleCellType == CellType.FLAG) {
+            return 0;
+        }
+        switch (model.getHiddenCellType(x, y)) {
+            case EMPTY:
+                return openAroundEmptyCell(x, y, model);
+            case MINE:
+                gameStatus = GameStatus.LOSE;
+                model.setVisibleCellType(x, y, CellType.MINE_BLOW);
+                service.gameOver(model);
+                service.checkWrongFlags(model);
+                dirtyRegion.addAll(model.getWidth(), model.getHeight());
+                return 0;
+            default:
+        }
+        model.setVisibleCellType(x, y, model.getHiddenCellType(x, y));
+        dirtyRegion.add(x, y);
+        return visibleCellType.isClosed() ? 1 : 0;
     }
 
     /**
      * Метод обрабатывает события при нажатии правой кнопки мыши. Проверка осуществляется по всем возможным типам кнопок
      * для данного поля
      *
-     * @param x,           @param y - координаты события на панели
-     * @param visibleBoard - видимое поле
+     * @param x,    @param y - координаты события на панели
+     * @param model - модель игрового поля
      */
-    public void onRightClick(int x, int y, Cell[][] visibleBoard) {
-        switch (visibleBoard[x][y].getCellType()) {
+    public void onRightClick(int x, int y, BoardModelInterface model) {
+        switch (model.getVisibleCellType(x, y)) {
             case FLAG:
-                visibleBoard[x][y].setCellType(CellType.QUESTION);
-                return;
+                model.setVisibleCellType(x, y, CellType.QUESTION);
+                break;
             case QUESTION:
-                visibleBoard[x][y].setCellType(CellType.CLOSED);
-                return;
+                model.setVisibleCellType(x, y, CellType.CLOSED);
+                break;
             case CLOSED:
-                visibleBoard[x][y].setCellType(CellType.FLAG);
+                model.setVisibleCellType(x, y, CellType.FLAG);
+                break;
+            default:
+                return;
         }
+        dirtyRegion.add(x, y);
     }
 
     /**
-     * Метод открывает пустые клетки вокруг выбранной пустой клетки, используется рекурсия
+     * Метод открывает выбранную пустую клетку и пустые клетки вокруг нее. Обход итеративный, без рекурсии
      *
-     * @see BoardListenerService#onLeftClick
+     * @return количество открытых клеток
+     * @see RevealEngine
      */
-    private void openAroundEmptyCell(int x, int y, Cell[][] hiddenBoard, Cell[][] visibleBoard) {
-        List<Cell> list = service.lookAroundCell(new Cell(x, y));
-        for (Cell c : list) {
-            if (hiddenBoard[c.getX()][c.getY()].getCellType() != CellType.MINE &&
-                    visibleBoard[c.getX()][c.getY()].getCellType() != CellType.EMPTY) {
-                visibleBoard[c.getX()][c.getY()] = hiddenBoard[c.getX()][c.getY()];
-                if (hiddenBoard[c.getX()][c.getY()].getCellType() == CellType.EMPTY) {
-                    onLeftClick(c.getX(), c.getY(), hiddenBoard, visibleBoard);
-                }
-            }
+    private int openAroundEmptyCell(int x, int y, BoardModelInterface model) {
+        int revealed = revealEngine.reveal(x, y, model, dirtyRegion);
+        if (metrics) {
+            GameMetrics.record(Metric.FLOOD_FILL_SIZE, revealed);
         }
+        return revealed;
     }
 }
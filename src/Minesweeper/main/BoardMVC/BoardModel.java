@@ -1,31 +1,17 @@
 package Minesweeper.main.BoardMVC;
 
 import Minesweeper.main.BoardModelInterface;
-import Minesweeper.main.Difficulty;
-import Minesweeper.main.GameStatus;
+import Minesweeper.main.CellType;
 
 /**
  * Данный класс представляет из себя модель игрового поля
  *
  * @author Кристина Зеленько
  * @version 1.0
+ * @see PackedBoardModel
  */
 public class BoardModel implements BoardModelInterface {
 
-    /**
-     * Поле статуса игры
-     *
-     * @see GameStatus
-     */
-    public static GameStatus gameStatus;
-
-    /**
-     * Поле сложности игры. По умолчанию сложность легкая
-     *
-     * @see Difficulty
-     */
-    public static Difficulty difficulty = Difficulty.EASY;
-
     /**
      * Скрытое поле - расположение игровых элементов и их типизация происходит именно на нем
      *
@@ -55,4 +41,53 @@ public class BoardModel implements BoardModelInterface {
     public void setVisibleBoard(Cell[][] visibleBoard) {
         this.visibleBoard = visibleBoard;
     }
+
+    public void initVisibleBoard(int width, int height) {
+        visibleBoard = createBoard(width, height);
+    }
+
+    public void initHiddenBoard(int width, int height) {
+        hiddenBoard = createBoard(width, height);
+    }
+
+    public int getWidth() {
+        return visibleBoard.length;
+    }
+
+    public int getHeight() {
+        return visibleBoard[0].length;
+    }
+
+    public CellType getHiddenCellType(int x, int y) {
+        return hiddenBoard[x][y].getCellType();
+    }
+
+    public CellType getVisibleCellType(int x, int y) {
+        return visibleBoard[x][y].getCellType();
+    }
+
+    public void setHiddenCellType(int x, int y, CellType cellType) {
+        hiddenBoard[x][y].setCellType(cellType);
+    }
+
+    public void setVisibleCellType(int x, int y, CellType cellType) {
+        visibleBoard[x][y].setCellType(cellType);
+    }
+
+    /**
+     * Служебный метод создания поля из закрытых ячеек
+     *
+     * @param width  - ширина поля
+     * @param height - высота поля
+     * @return возвращает игровое поле
+     */
+    private static Cell[][] createBoard(int width, int height) {
+        Cell[][] cells = new Cell[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                cells[x][y] = new Cell(x, y);
+            }
+        }
+        return cells;
+    }
 }
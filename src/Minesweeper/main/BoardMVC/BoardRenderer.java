@@ -0,0 +1,80 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.Solver.ProbabilityMap;
+
+import java.awt.*;
+
+/**
+ * Отрисовка видимого поля и карты вероятностей мин в любой графический контекст: панель, буфер вида или
+ * {@link java.awt.image.BufferedImage} без окна. Не зависит от Swing, поэтому ее можно измерять в бенчмарках
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see BoardView
+ */
+public class BoardRenderer {
+
+    /**
+     * Цвета карты вероятностей: доказанно безопасные клетки - зеленые, остальные - красные тем сильнее,
+     * чем вероятнее в них мина
+     */
+    private static final Color SAFE_COLOR = new Color(0, 200, 0, 110);
+    private static final Color[] HEAT_COLORS = new Color[11];
+
+    static {
+        for (int i = 0; i < HEAT_COLORS.length; i++) {
+            HEAT_COLORS[i] = new Color(255, 0, 0, 15 + i * 16);
+        }
+    }
+
+    private final TileAtlas atlas;
+    private final int iconSize;
+
+    /**
+     * @param atlas    - набор иконок клеток
+     * @param iconSize - размер клетки в пикселях
+     */
+    public BoardRenderer(TileAtlas atlas, int iconSize) {
+        this.atlas = atlas;
+        this.iconSize = iconSize;
+    }
+
+    /**
+     * Рисует иконки клеток видимого поля в прямоугольнике [fromX, toX] x [fromY, toY]. Границы обрезаются по полю
+     *
+     * @param g - графический контекст панели или буфера
+     */
+    public void paintCells(Graphics g, BoardModelInterface model, int fromX, int fromY, int toX, int toY) {
+        fromX = Math.max(fromX, 0);
+        fromY = Math.max(fromY, 0);
+        toX = Math.min(toX, model.getWidth() - 1);
+        toY = Math.min(toY, model.getHeight() - 1);
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                g.drawImage(atlas.getImage(model.getVisibleCellType(x, y)), x * iconSize, y * iconSize, null);
+            }
+        }
+    }
+
+    /**
+     * Закрашивает закрытые клетки прямоугольника [fromX, toX] x [fromY, toY] по вероятности мины
+     */
+    public void paintHeatMap(Graphics g, BoardModelInterface model, ProbabilityMap heatMap,
+                             int fromX, int fromY, int toX, int toY) {
+        fromX = Math.max(fromX, 0);
+        fromY = Math.max(fromY, 0);
+        toX = Math.min(toX, model.getWidth() - 1);
+        toY = Math.min(toY, model.getHeight() - 1);
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                double probability = heatMap.getProbability(x, y);
+                if (Double.isNaN(probability) || !model.getVisibleCellType(x, y).isClosed()) {
+                    continue;
+                }
+                g.setColor(probability == 0 ? SAFE_COLOR : HEAT_COLORS[(int) Math.round(probability * 10)]);
+                g.fillRect(x * iconSize, y * iconSize, iconSize, iconSize);
+            }
+        }
+    }
+}
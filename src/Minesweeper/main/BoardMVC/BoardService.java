@@ -1,11 +1,14 @@
 package Minesweeper.main.BoardMVC;
 
+import Minesweeper.main.BoardModelInterface;
 import Minesweeper.main.CellType;
-import Minesweeper.main.GameStatus;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Сервисный класс, отвечающий за обработку процессов с игровыми полями
@@ -15,7 +18,22 @@ import java.util.Random;
  */
 public class BoardService {
 
-    private static Random random = new Random();
+    /**
+     * Генератор зерен для расстановки мин в поле из ячеек. У каждого сервиса свой, поэтому игры не делят состояние
+     */
+    private final Random random = new Random();
+
+    private MinePlacer minePlacer = new MinePlacer();
+
+    public BoardService() {
+    }
+
+    /**
+     * @param minePlacer - алгоритм расстановки мин, например с другим радиусом безопасной зоны
+     */
+    public BoardService(MinePlacer minePlacer) {
+        this.minePlacer = minePlacer;
+    }
 
     /**
      * Метод заполнения игрового поля пустыми ячейками
@@ -41,17 +59,29 @@ public class BoardService {
      * @param mines     - количество мин на поле
      * @param exceptOfX @param exceptOfY - с целью невозможности проигрыша (клик по мине) с первого действия пользователя
      *                  при генерации невидимого поля учитываются координаты клика
+     * @see MinePlacer
      */
     public void putMinesAtBoard(Cell[][] cells, int mines, int exceptOfX, int exceptOfY) {
-        int mineCount = 0;
-        while (mineCount < mines) {
-            Cell random = generateRandomCell(cells.length, cells[0].length);
-            if (cells[random.getX()][random.getY()].getCellType() != CellType.MINE
-                    && random.getX() != exceptOfX
-                    && random.getY() != exceptOfY) {
-                cells[random.getX()][random.getY()].setCellType(CellType.MINE);
-                mineCount++;
-            }
+        int width = cells.length;
+        for (int index : minePlacer.placeMines(width, cells[0].length, mines, random.nextLong(), exceptOfX, exceptOfY)) {
+            cells[index % width][index / width].setCellType(CellType.MINE);
+        }
+    }
+
+    /**
+     * Метод заполнения минами скрытого поля модели. Работает с любой реализацией модели без создания ячеек.
+     * Расположение мин полностью определяется размерами поля, количеством мин, зерном и координатами первого клика
+     *
+     * @param model     - модель, скрытое поле которой необходимо заполнить минами
+     * @param mines     - количество мин на поле
+     * @param exceptOfX @param exceptOfY - координаты первого клика пользователя, вокруг которого мин нет
+     * @param seed      - зерно генератора случайных чисел
+     * @see MinePlacer
+     */
+    public void putMinesAtBoard(BoardModelInterface model, int mines, int exceptOfX, int exceptOfY, long seed) {
+        int width = model.getWidth();
+        for (int index : minePlacer.placeMines(width, model.getHeight(), mines, seed, exceptOfX, exceptOfY)) {
+            model.setHiddenCellType(index % width, index / width, CellType.MINE);
         }
     }
 
@@ -70,7 +100,7 @@ public class BoardService {
                 if (cells[i][j].getCellType() == CellType.MINE) {
                     continue;
                 }
-                lookAroundCells = lookAroundCell(cells[i][j]);
+                lookAroundCells = lookAroundCell(cells[i][j], cells.length, cells[i].length);
 
                 for (Cell cell : lookAroundCells) {
                     if (cells[cell.getX()][cell.getY()].getCellType() == CellType.MINE) {
@@ -82,6 +112,24 @@ public class BoardService {
         }
     }
 
+    /**
+     * Метод генерации числовых и пустых ячеек скрытого поля модели. Границы поля берутся из самой модели.
+     * Количество мин вокруг клеток считается скользящим окном по строкам без создания списков соседей.
+     * Большие поля делятся на полосы строк, которые обрабатываются параллельно
+     *
+     * @param model - модель, скрытое поле которой необходимо заполнить
+     * @see BoardService#defineOtherCells(Cell[][])
+     * @see NeighborCountTask
+     */
+    public void defineOtherCells(BoardModelInterface model) {
+        NeighborCountTask task = new NeighborCountTask(model, 0, model.getHeight());
+        if (getSize(model) < NeighborCountTask.PARALLEL_THRESHOLD) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
     /**
      * Метод установки типа ячеек (с привязанными иконками) всему полю. Используется для видимого поля
      *
@@ -96,29 +144,22 @@ public class BoardService {
         }
     }
 
-    /**
-     * Служебный метод для генерации случайных координат. Используется для заполнения поля минами
-     *
-     * @param xLength, @param yLength - максимальные величины длины и ширины игрового поля
-     */
-    private Cell generateRandomCell(int xLength, int yLength) {
-        return new Cell(random.nextInt((xLength - 1)), random.nextInt(yLength - 1));
-    }
-
     /**
      * Служебный метод получения ячеек вокруг любой ячейки
      *
-     * @param cell - ячейка, координаты вокруг которой необходимо получить
+     * @param cell   - ячейка, координаты вокруг которой необходимо получить
+     * @param width  - ширина поля
+     * @param height - высота поля
      * @return возвращает список ячеек
      */
-    List<Cell> lookAroundCell(Cell cell) {
+    List<Cell> lookAroundCell(Cell cell, int width, int height) {
         List<Cell> aroundCellsList = new ArrayList<>();
         for (int x = cell.getX() - 1; x <= cell.getX() + 1; x++) {
             for (int y = cell.getY() - 1; y <= cell.getY() + 1; y++) {
                 if (x == cell.getX() && y == cell.getY()) {
                     continue;
                 }
-                if (x >= 0 && y >= 0 && x <= BoardModel.difficulty.width - 1 && y <= BoardModel.difficulty.height - 1) {
+                if (x >= 0 && y >= 0 && x <= width - 1 && y <= height - 1) {
                     aroundCellsList.add(new Cell(x, y));
                 }
             }
@@ -127,17 +168,20 @@ public class BoardService {
     }
 
     /**
-     * Метод, осуществляющий редактирование поля в случае проигрыша игрока (взрыв мин)
+     * Метод, осуществляющий редактирование поля в случае проигрыша игрока (взрыв мин). На бесконечном поле
+     * открываются только мины исследованных участков
      *
-     * @param hiddenBoard  - невидимое поле
-     * @param visibleBoard - видимое поле, подвергается изменениям
+     * @param model - модель игрового поля, видимое поле подвергается изменениям
      */
-    void gameOver(Cell[][] hiddenBoard, Cell[][] visibleBoard) {
-        BoardModel.gameStatus = GameStatus.LOSE;
-        for (int i = 0; i < hiddenBoard.length; i++) {
-            for (int b = 0; b < hiddenBoard[0].length; b++) {
-                if (hiddenBoard[i][b].getCellType() == CellType.MINE) {
-                    visibleBoard[i][b].setCellType(CellType.MINE_BLOW);
+    void gameOver(BoardModelInterface model) {
+        if (model instanceof ChunkedBoardModel) {
+            ((ChunkedBoardModel) model).revealExploredMines();
+            return;
+        }
+        for (int i = 0; i < model.getWidth(); i++) {
+            for (int b = 0; b < model.getHeight(); b++) {
+                if (model.getHiddenCellType(i, b) == CellType.MINE) {
+                    model.setVisibleCellType(i, b, CellType.MINE_BLOW);
                 }
             }
         }
@@ -147,13 +191,17 @@ public class BoardService {
     /**
      * Метод, исполняющийся после окончания игры. Показывает неверно расставленные флаги в случае проигрыша
      *
-     * @param visibleBoard - видимое поле, на котором отображаются флаги, подвергается изменениям
+     * @param model - модель игрового поля, видимое поле которой подвергается изменениям
      */
-    void checkWrongFlags(Cell[][] visibleBoard) {
-        for (int x = 0; x < visibleBoard.length; x++) {
-            for (int y = 0; y < visibleBoard[0].length; y++) {
-                if (visibleBoard[x][y].getCellType() == CellType.FLAG) {
-                    visibleBoard[x][y].setCellType(CellType.WRONG_FLAG);
+    void checkWrongFlags(BoardModelInterface model) {
+        if (model instanceof ChunkedBoardModel) {
+            ((ChunkedBoardModel) model).markExploredWrongFlags();
+            return;
+        }
+        for (int x = 0; x < model.getWidth(); x++) {
+            for (int y = 0; y < model.getHeight(); y++) {
+                if (model.getVisibleCellType(x, y) == CellType.FLAG) {
+                    model.setVisibleCellType(x, y, CellType.WRONG_FLAG);
                 }
             }
         }
@@ -162,4 +210,80 @@ public class BoardService {
     public int getSize(Cell[][] board) {
         return board.length * board[0].length;
     }
+
+    public int getSize(BoardModelInterface model) {
+        return model.getWidth() * model.getHeight();
+    }
+
+    /**
+     * Задача подсчета мин вокруг клеток для полосы строк [fromY, toY) скрытого поля. Окно из трех строк
+     * (предыдущая, текущая, следующая) хранится в массивах признаков мин и сдвигается на строку вниз, так что каждая
+     * клетка поля читается из модели один раз. Полоса изменяет только свои строки, поэтому полосы выполняются
+     * параллельно без синхронизации
+     */
+    static class NeighborCountTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Размер поля в клетках, начиная с которого подсчет выполняется параллельно, и размер одной полосы
+         */
+        static final int PARALLEL_THRESHOLD = 1 << 16;
+        private static final int BAND_SIZE = 1 << 14;
+
+        private final BoardModelInterface model;
+        private final int fromY;
+        private final int toY;
+
+        NeighborCountTask(BoardModelInterface model, int fromY, int toY) {
+            this.model = model;
+            this.fromY = fromY;
+            this.toY = toY;
+        }
+
+        @Override
+        protected void compute() {
+            int width = model.getWidth();
+            if ((long) (toY - fromY) * width > BAND_SIZE && toY - fromY > 1) {
+                int middle = (fromY + toY) >>> 1;
+                invokeAll(new NeighborCountTask(model, fromY, middle), new NeighborCountTask(model, middle, toY));
+                return;
+            }
+            byte[] previous = new byte[width];
+            byte[] current = new byte[width];
+            byte[] next = new byte[width];
+            readMines(fromY - 1, previous);
+            readMines(fromY, current);
+            for (int y = fromY; y < toY; y++) {
+                readMines(y + 1, next);
+                for (int x = 0; x < width; x++) {
+                    if (current[x] != 0) {
+                        continue;
+                    }
+                    int mineCount = 0;
+                    for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+                        mineCount += previous[i] + current[i] + next[i];
+                    }
+                    model.setHiddenCellType(x, y, CellType.fromOrdinal(mineCount));
+                }
+                byte[] row = previous;
+                previous = current;
+                current = next;
+                next = row;
+            }
+        }
+
+        /**
+         * Заполняет массив признаками мин строки y. Строки за границами поля считаются пустыми
+         */
+        private void readMines(int y, byte[] row) {
+            if (y < 0 || y >= model.getHeight()) {
+                Arrays.fill(row, (byte) 0);
+                return;
+            }
+            for (int x = 0; x < row.length; x++) {
+                row[x] = model.getHiddenCellType(x, y) == CellType.MINE ? (byte) 1 : (byte) 0;
+            }
+        }
+    }
 }
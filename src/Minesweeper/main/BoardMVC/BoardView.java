@@ -3,17 +3,22 @@ package Minesweeper.main.BoardMVC;
 import Minesweeper.main.BoardModelInterface;
 import Minesweeper.main.CellType;
 import Minesweeper.main.ControllerInterface;
+import Minesweeper.main.Difficulty;
+import Minesweeper.main.Metrics.GameMetrics;
+import Minesweeper.main.Metrics.Metric;
+import Minesweeper.main.Solver.ProbabilityMap;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionAdapter;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 
 /**
  * Класс представляет вид игрового поля - его интерфейс.
@@ -44,17 +49,72 @@ public class BoardView {
     public JPanel panel;
     private JMenuBar menuBar;
 
+    /**
+     * Прокручиваемая область просмотра панели. Для больших полей на экране видна только часть панели,
+     * и отрисовываются только клетки, попавшие в видимую область
+     */
+    private JScrollPane scrollPane;
+
     /**
      * Поле представляет размер одной игровой клетки, в дальнейшем используется, как правило, для вычисления координат
      */
     private int iconSize = 25;
 
+    /**
+     * Поле включает постоянный буфер с отрисованным полем. По умолчанию включен, отключается параметром
+     * -Dminesweeper.backBuffer=false. Для полей больше {@link BoardView#MAX_BACK_BUFFER_PIXELS} буфер не создается
+     */
+    private static final boolean BACK_BUFFER = !"false".equals(System.getProperty("minesweeper.backBuffer"));
+    private static final long MAX_BACK_BUFFER_PIXELS = 2048L * 2048L;
+
+    /**
+     * Отрисовка клеток иконками из набора, который загружается один раз за время работы программы
+     */
+    private BoardRenderer renderer;
+
+    /**
+     * Буфер с отрисованным видимым полем. Измененные клетки дорисовываются в него в {@link BoardView#repaintCells},
+     * а перерисовка панели копирует из буфера область отсечения
+     */
+    private BufferedImage backBuffer;
+
+    /**
+     * Пункт меню режима автоматического открытия клеток, безопасность которых доказана решателем.
+     * Создается один раз, чтобы режим сохранялся между играми
+     */
+    private JCheckBoxMenuItem autoOpen = new JCheckBoxMenuItem("Auto-open");
+
+    /**
+     * Пункт меню режима полей, которые можно пройти без угадывания. Действует со следующей игры
+     */
+    private JCheckBoxMenuItem noGuess = new JCheckBoxMenuItem("No guessing");
+
+    /**
+     * Пункт меню карты вероятностей мин и сама карта {@link BoardRenderer#paintHeatMap}
+     */
+    private JCheckBoxMenuItem heatMapItem = new JCheckBoxMenuItem("Heat map");
+    private ProbabilityMap heatMap;
+
+    /**
+     * Контроллер выполняет ход в фоновом потоке. Пока ход идет, поверх окна показывается индикатор работы,
+     * а панель без буфера не читает изменяемую модель
+     */
+    private boolean busy;
+
     /**
      * Конструктор - вызывается из метода {@link Minesweeper.main.Start#main(String[])}
      * Здесь происходит начало инициализации программы, инициализируется контроллер и модель игрового поля
      */
     BoardView(ControllerInterface controller, BoardModelInterface model) {
         this.controller = controller;
+        heatMapItem.addActionListener(event -> controller.checkActionPerformed(event));
+        this.model = model;
+    }
+
+    /**
+     * Меняет модель, с которой работает вид. Используется при переходе между обычным и бесконечным полем
+     */
+    void setModel(BoardModelInterface model) {
         this.model = model;
     }
 
@@ -66,13 +126,17 @@ public class BoardView {
         if (frame != null) {
             frame.dispose();
         }
+        heatMap = null;
         initFrame();
         initMenu();
         initBoard();
+        renderer = new BoardRenderer(TileAtlas.getInstance(), iconSize);
         initPanel();
-        initCellType();
-        frame.add(panel);
+        initBackBuffer();
+        initScrollPane();
+        frame.add(scrollPane);
         frame.pack();
+        centerViewport();
         addMouseListener();
     }
 
@@ -87,30 +151,124 @@ public class BoardView {
         frame.setResizable(false);
         frame.setVisible(true);
         frame.setLocationRelativeTo(null);
+        initBusyPane();
+    }
+
+    /**
+     * Индикатор работы на прозрачной панели поверх окна. Панель перехватывает мышь, поэтому, пока она видна,
+     * поле и меню не принимают кликов
+     */
+    private void initBusyPane() {
+        JProgressBar progress = new JProgressBar();
+        progress.setIndeterminate(true);
+        progress.setString("Working...");
+        progress.setStringPainted(true);
+        JPanel busyPane = new JPanel(new GridBagLayout());
+        busyPane.setOpaque(false);
+        busyPane.add(progress);
+        busyPane.addMouseListener(new MouseAdapter() {
+        });
+        busyPane.addMouseMotionListener(new MouseMotionAdapter() {
+        });
+        busyPane.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        frame.setGlassPane(busyPane);
+    }
+
+    /**
+     * Показывает или убирает индикатор работы. После завершения хода панель перерисовывается целиком, так как
+     * во время хода панель без буфера не рисовала клетки
+     */
+    public void setBusy(boolean busy) {
+        this.busy = busy;
+        frame.getGlassPane().setVisible(busy);
+        if (!busy) {
+            panel.repaint();
+        }
     }
 
     /**
      * Инициализация панели вместе с переопределением метода paintComponent(). При изначальной отрисовке игрового поля
-     * работает с верхней панелью, типы всех ячеек которой CellType.CLOSED. После каждого действия осуществляется
-     * перерисовка панели методом repaint();
+     * работает с верхней панелью, типы всех ячеек которой CellType.CLOSED. После каждого действия перерисовываются
+     * только измененные клетки {@link BoardView#repaintCells}, а отрисовка ограничивается областью отсечения Graphics.
      * Размеры панели зависят от размеров текущего поля
      */
     private void initPanel() {
         panel = new JPanel() {
             @Override
             public void paintComponent(Graphics g) {
+                long start = GameMetrics.start();
                 super.paintComponent(g);
-                Cell[][] cells = model.getVisibleBoard();
-                for (Cell little[] : cells) {
-                    for (Cell cell : little) {
-                        ImageIcon imageIcon = new ImageIcon(cell.getCellType().getImage());
-                        imageIcon.paintIcon(this, g, cell.getX() * iconSize, cell.getY() * iconSize);
-                    }
+                Rectangle clip = g.getClipBounds();
+                if (clip == null) {
+                    clip = new Rectangle(0, 0, getWidth(), getHeight());
+                }
+                int fromX = clip.x / iconSize;
+                int fromY = clip.y / iconSize;
+                int toX = (clip.x + clip.width - 1) / iconSize;
+                int toY = (clip.y + clip.height - 1) / iconSize;
+                if (backBuffer != null) {
+                    g.drawImage(backBuffer, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                            clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+                } else if (!busy) {
+                    renderer.paintCells(g, model, fromX, fromY, toX, toY);
+                }
+                if (heatMap != null && !busy) {
+                    renderer.paintHeatMap(g, model, heatMap, fromX, fromY, toX, toY);
                 }
+                GameMetrics.recordSince(Metric.PAINT_LATENCY, start);
             }
         };
-        panel.setPreferredSize(new Dimension(BoardModel.difficulty.width * iconSize
-                , BoardModel.difficulty.height * iconSize));
+        panel.setPreferredSize(new Dimension(controller.getBoardWidth() * iconSize
+                , controller.getBoardHeight() * iconSize));
+    }
+
+    /**
+     * Помещает панель в прокручиваемую область. Размер области ограничен размером экрана, поле, которое не помещается
+     * на экран, прокручивается, а окно игры можно растягивать
+     */
+    private void initScrollPane() {
+        scrollPane = new JScrollPane(panel);
+        scrollPane.setBorder(null);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(iconSize);
+        scrollPane.getHorizontalScrollBar().setUnitIncrement(iconSize);
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        Dimension board = panel.getPreferredSize();
+        int maxWidth = screen.width * 4 / 5;
+        int maxHeight = screen.height * 4 / 5;
+        boolean fits = board.width <= maxWidth && board.height <= maxHeight;
+        scrollPane.getViewport().setPreferredSize(new Dimension(Math.min(board.width, maxWidth),
+                Math.min(board.height, maxHeight)));
+        frame.setResizable(!fits);
+    }
+
+    /**
+     * Прокручивает область просмотра к центру поля. Для бесконечного поля это позволяет исследовать мир во все стороны
+     */
+    private void centerViewport() {
+        JViewport viewport = scrollPane.getViewport();
+        Dimension board = panel.getPreferredSize();
+        Dimension visible = viewport.getExtentSize();
+        viewport.setViewPosition(new Point(Math.max(board.width - visible.width, 0) / 2,
+                Math.max(board.height - visible.height, 0) / 2));
+    }
+
+    /**
+     * Создает буфер с отрисованным полем, если он включен и поле не слишком велико
+     */
+    private void initBackBuffer() {
+        backBuffer = null;
+        long width = (long) model.getWidth() * iconSize;
+        long height = (long) model.getHeight() * iconSize;
+        if (!BACK_BUFFER || width * height > MAX_BACK_BUFFER_PIXELS) {
+            return;
+        }
+        GraphicsConfiguration configuration = frame.getGraphicsConfiguration();
+        backBuffer = configuration != null
+                ? configuration.createCompatibleImage((int) width, (int) height)
+                : new BufferedImage((int) width, (int) height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = backBuffer.createGraphics();
+        renderer.paintCells(graphics, model, 0, 0, model.getWidth() - 1, model.getHeight() - 1);
+        graphics.dispose();
     }
 
     /**
@@ -121,19 +279,40 @@ public class BoardView {
         menuBar = new JMenuBar();
         JMenu game = new JMenu("Game");
         JMenuItem newGame = new JMenuItem("New");
+        JMenuItem replay = new JMenuItem("Replay");
+        JMenuItem undo = new JMenuItem("Undo");
+        JMenuItem redo = new JMenuItem("Redo");
+        JMenuItem save = new JMenuItem("Save");
+        JMenuItem load = new JMenuItem("Load");
         JMenu difficulty = new JMenu("Difficulty");
         JMenuItem easy = new JMenuItem("Easy");
         JMenuItem normal = new JMenuItem("Normal");
         JMenuItem hard = new JMenuItem("Hard");
+        JMenuItem custom = new JMenuItem("Custom");
+        JMenuItem endless = new JMenuItem("Endless");
         JMenuItem exit = new JMenuItem("Exit");
+        JMenu solver = new JMenu("Solver");
+        JMenuItem hint = new JMenuItem("Hint");
 
         game.add(newGame);
+        game.add(undo);
+        game.add(redo);
+        game.add(replay);
+        game.add(save);
+        game.add(load);
         game.add(difficulty);
+        game.add(noGuess);
         game.add(exit);
         difficulty.add(easy);
         difficulty.add(normal);
         difficulty.add(hard);
+        difficulty.add(custom);
+        difficulty.add(endless);
+        solver.add(hint);
+        solver.add(autoOpen);
+        solver.add(heatMapItem);
         menuBar.add(game);
+        menuBar.add(solver);
         frame.setJMenuBar(menuBar);
 
         ActionListener listener = new ActionListener() {
@@ -143,32 +322,111 @@ public class BoardView {
             }
         };
         newGame.addActionListener(listener);
+        undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        undo.addActionListener(listener);
+        redo.addActionListener(listener);
+        replay.addActionListener(listener);
+        save.addActionListener(listener);
+        load.addActionListener(listener);
         easy.addActionListener(listener);
         normal.addActionListener(listener);
         hard.addActionListener(listener);
+        custom.addActionListener(listener);
+        endless.addActionListener(listener);
         exit.addActionListener(listener);
+        hint.addActionListener(listener);
     }
 
     /**
-     * Присваивает каждому типу перечисления одноименную иконку из папки /resources.
+     * Включен ли режим автоматического открытия клеток, безопасность которых доказана решателем
      */
-    private void initCellType() {
-        BufferedImage image;
-        for (CellType cellType : CellType.values()) {
-            try {
-                image = ImageIO.read(new File("resources/" + cellType.name() + ".png"));
-                cellType.setImage(image);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    public boolean isAutoOpen() {
+        return autoOpen.isSelected();
+    }
+
+    public boolean isNoGuess() {
+        return noGuess.isSelected();
+    }
+
+    public boolean isHeatMap() {
+        return heatMapItem.isSelected();
+    }
+
+    /**
+     * Показывает карту вероятностей мин поверх поля или убирает ее
+     *
+     * @param heatMap - вероятности мин или null
+     */
+    public void setHeatMap(ProbabilityMap heatMap) {
+        this.heatMap = heatMap;
+        panel.repaint();
+    }
+
+    /**
+     * Прямоугольник клеток, видимых в области просмотра
+     *
+     * @return прямоугольник в координатах клеток
+     */
+    public Rectangle getVisibleCells() {
+        Rectangle view = scrollPane.getViewport().getViewRect();
+        return new Rectangle(view.x / iconSize, view.y / iconSize, (view.width + iconSize - 1) / iconSize + 1,
+                (view.height + iconSize - 1) / iconSize + 1);
+    }
+
+    /**
+     * Запрашивает у игрока параметры пользовательской сложности
+     *
+     * @param initialWidth, @param initialHeight, @param initialMines - значения, предложенные игроку
+     * @return массив из ширины, высоты и количества мин или null, если игрок отказался
+     * @see Minesweeper.main.Difficulty#checkCustom
+     */
+    public int[] askCustomDifficulty(int initialWidth, int initialHeight, int initialMines) {
+        JSpinner width = new JSpinner(new SpinnerNumberModel(initialWidth, 1, Difficulty.MAX_SIZE, 1));
+        JSpinner height = new JSpinner(new SpinnerNumberModel(initialHeight, 1, Difficulty.MAX_SIZE, 1));
+        JSpinner mines = new JSpinner(new SpinnerNumberModel(initialMines, 0,
+                Difficulty.MAX_SIZE * Difficulty.MAX_SIZE - 1, 1));
+        JPanel form = new JPanel(new GridLayout(3, 2, 5, 5));
+        form.add(new JLabel("Width"));
+        form.add(width);
+        form.add(new JLabel("Height"));
+        form.add(height);
+        form.add(new JLabel("Mines"));
+        form.add(mines);
+        int response = JOptionPane.showConfirmDialog(frame, form, "Custom", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        if (response != JOptionPane.OK_OPTION) {
+            return null;
         }
+        return new int[]{(Integer) width.getValue(), (Integer) height.getValue(), (Integer) mines.getValue()};
     }
 
     /**
      * Первое прямое обращение к контроллеру для начала генерации игрового поля на основе параметров сложности
      */
     private void initBoard() {
-        controller.createVisibleBoard(BoardModel.difficulty.width, BoardModel.difficulty.height);
+        controller.createVisibleBoard(controller.getBoardWidth(), controller.getBoardHeight());
+    }
+
+    /**
+     * Перерисовывает прямоугольник измененных клеток. Если ни одна клетка не изменилась, перерисовка не выполняется.
+     * При включенном буфере клетки сначала дорисовываются в него
+     *
+     * @param dirtyRegion - прямоугольник измененных клеток
+     */
+    public void repaintCells(DirtyRegion dirtyRegion) {
+        if (dirtyRegion.isEmpty()) {
+            return;
+        }
+        if (backBuffer != null) {
+            Graphics2D graphics = backBuffer.createGraphics();
+            renderer.paintCells(graphics, model, dirtyRegion.getMinX(), dirtyRegion.getMinY(), dirtyRegion.getMaxX(),
+                    dirtyRegion.getMaxY());
+            graphics.dispose();
+        }
+        panel.repaint(dirtyRegion.getMinX() * iconSize, dirtyRegion.getMinY() * iconSize,
+                (dirtyRegion.getMaxX() - dirtyRegion.getMinX() + 1) * iconSize,
+                (dirtyRegion.getMaxY() - dirtyRegion.getMinY() + 1) * iconSize);
     }
 
     /**
@@ -188,7 +446,9 @@ public class BoardView {
             public void mouseReleased(MouseEvent event) {
                 int x = event.getX() / iconSize;
                 int y = event.getY() / iconSize;
+                long start = GameMetrics.start();
                 controller.checkUserAction(x, y, event);
+                GameMetrics.recordSince(Metric.CLICK_LATENCY, start);
                 controller.checkGameStatus();
             }
 
@@ -0,0 +1,275 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Модель бесконечного поля. Поле разбито на участки {@link ChunkedBoardModel#CHUNK_SIZE}x{@link ChunkedBoardModel#CHUNK_SIZE},
+ * каждый участок хранится в {@link PackedBoardModel} и создается при первом обращении. Мины участка однозначно
+ * определяются зерном мира и координатами участка, а цифры считаются по окну, включающему крайние клетки соседних
+ * участков, поэтому на границах участков они верны.
+ * <p>
+ * Участки, на которых игрок что-либо открыл или отметил, хранятся постоянно. Участки, которые только читались,
+ * лежат в ограниченном кэше и вытесняются по давности использования, при следующем обращении они создаются заново.
+ * Таким образом, расход памяти зависит от исследованной части поля, а не от его размера.
+ * <p>
+ * Размер поля ограничен только диапазоном координат: {@link ChunkedBoardModel#WORLD_SIZE} клеток по каждой стороне
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class ChunkedBoardModel implements BoardModelInterface {
+
+    /**
+     * Сторона мира в клетках и сторона участка
+     */
+    public static final int WORLD_SIZE = 1 << 20;
+    public static final int CHUNK_SIZE = 32;
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+
+    /**
+     * Количество мин на одном участке. Плотность совпадает со сложностью NORMAL (около 15,6%)
+     */
+    public static final int MINES_PER_CHUNK = 160;
+
+    /**
+     * Количество непосещенных участков, удерживаемых в кэше
+     */
+    private static final int CACHE_CHUNKS = 1024;
+
+    private final BoardService service = new BoardService();
+
+    /**
+     * Зерно мира и координаты первого клика, вокруг которого мин нет
+     */
+    private long worldSeed;
+    private int firstX = MinePlacer.NO_FIRST_CLICK;
+    private int firstY = MinePlacer.NO_FIRST_CLICK;
+
+    /**
+     * Участки, видимое поле которых изменялось. Хранятся до конца игры
+     */
+    private final Map<Long, PackedBoardModel> explored = new HashMap<>();
+
+    /**
+     * Участки, которые только читались. Вытесняются по давности использования
+     */
+    private final Map<Long, PackedBoardModel> cache = new LinkedHashMap<Long, PackedBoardModel>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PackedBoardModel> eldest) {
+            return size() > CACHE_CHUNKS;
+        }
+    };
+
+    /**
+     * Последний участок, к которому было обращение. Соседние клетки обычно лежат на одном участке,
+     * поэтому большинство обращений обходится без поиска в таблицах
+     */
+    private long lastKey = Long.MIN_VALUE;
+    private PackedBoardModel lastChunk;
+    private boolean lastExplored;
+
+    /**
+     * Начинает новый мир. Вызывается при первом клике игрока
+     *
+     * @param worldSeed - зерно мира
+     * @param firstX,   @param firstY - координаты первого клика, вокруг которого мин нет
+     */
+    public void startWorld(long worldSeed, int firstX, int firstY) {
+        clear();
+        this.worldSeed = worldSeed;
+        this.firstX = firstX;
+        this.firstY = firstY;
+    }
+
+    /**
+     * Размеры бесконечного поля постоянны, параметры игнорируются. Вызов начинает новую игру с закрытым полем
+     */
+    public void initVisibleBoard(int width, int height) {
+        clear();
+    }
+
+    public void initHiddenBoard(int width, int height) {
+        clear();
+    }
+
+    public int getWidth() {
+        return WORLD_SIZE;
+    }
+
+    public int getHeight() {
+        return WORLD_SIZE;
+    }
+
+    public CellType getHiddenCellType(int x, int y) {
+        return chunk(x, y, false).getHiddenCellType(x & (CHUNK_SIZE - 1), y & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * Видимое поле неисследованного участка полностью закрыто, поэтому участок для чтения не создается
+     */
+    public CellType getVisibleCellType(int x, int y) {
+        PackedBoardModel chunk = exploredChunk(x, y);
+        return chunk == null ? CellType.CLOSED : chunk.getVisibleCellType(x & (CHUNK_SIZE - 1), y & (CHUNK_SIZE - 1));
+    }
+
+    public void setHiddenCellType(int x, int y, CellType cellType) {
+        chunk(x, y, true).setHiddenCellType(x & (CHUNK_SIZE - 1), y & (CHUNK_SIZE - 1), cellType);
+    }
+
+    public void setVisibleCellType(int x, int y, CellType cellType) {
+        chunk(x, y, true).setVisibleCellType(x & (CHUNK_SIZE - 1), y & (CHUNK_SIZE - 1), cellType);
+    }
+
+    /**
+     * Количество исследованных участков и участков в кэше. Используется для контроля расхода памяти
+     */
+    public int getExploredChunks() {
+        return explored.size();
+    }
+
+    public int getCachedChunks() {
+        return cache.size();
+    }
+
+    /**
+     * Открывает все мины исследованных участков. Мины неисследованных участков игрок не видит
+     *
+     * @see BoardService#gameOver
+     */
+    void revealExploredMines() {
+        for (PackedBoardModel chunk : explored.values()) {
+            for (int x = 0; x < CHUNK_SIZE; x++) {
+                for (int y = 0; y < CHUNK_SIZE; y++) {
+                    if (chunk.getHiddenCellType(x, y) == CellType.MINE) {
+                        chunk.setVisibleCellType(x, y, CellType.MINE_BLOW);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Отмечает неверные флаги исследованных участков. Флаг всегда делает участок исследованным
+     *
+     * @see BoardService#checkWrongFlags
+     */
+    void markExploredWrongFlags() {
+        for (PackedBoardModel chunk : explored.values()) {
+            for (int x = 0; x < CHUNK_SIZE; x++) {
+                for (int y = 0; y < CHUNK_SIZE; y++) {
+                    if (chunk.getVisibleCellType(x, y) == CellType.FLAG) {
+                        chunk.setVisibleCellType(x, y, CellType.WRONG_FLAG);
+                    }
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        explored.clear();
+        cache.clear();
+        lastKey = Long.MIN_VALUE;
+        lastChunk = null;
+    }
+
+    private static long key(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    private PackedBoardModel exploredChunk(int x, int y) {
+        long key = key(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        if (key == lastKey && lastExplored) {
+            return lastChunk;
+        }
+        return explored.get(key);
+    }
+
+    /**
+     * Возвращает участок, содержащий клетку, создавая его при необходимости
+     *
+     * @param forWrite - участок будет изменен и должен быть перенесен в исследованные
+     */
+    private PackedBoardModel chunk(int x, int y, boolean forWrite) {
+        int chunkX = x >> CHUNK_SHIFT;
+        int chunkY = y >> CHUNK_SHIFT;
+        long key = key(chunkX, chunkY);
+        if (key == lastKey && (lastExplored || !forWrite)) {
+            return lastChunk;
+        }
+        PackedBoardModel chunk = explored.get(key);
+        boolean isExplored = chunk != null;
+        if (chunk == null) {
+            chunk = forWrite ? cache.remove(key) : cache.get(key);
+            if (chunk == null) {
+                chunk = generateChunk(chunkX, chunkY);
+                if (!forWrite) {
+                    cache.put(key, chunk);
+                }
+            }
+            if (forWrite) {
+                explored.put(key, chunk);
+                isExplored = true;
+            }
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        lastExplored = isExplored;
+        return chunk;
+    }
+
+    /**
+     * Создает участок: расставляет мины участка и его соседей в окне с рамкой в одну клетку, считает цифры
+     * {@link BoardService#defineOtherCells} и переносит внутреннюю часть окна в участок
+     */
+    private PackedBoardModel generateChunk(int chunkX, int chunkY) {
+        int windowSize = CHUNK_SIZE + 2;
+        PackedBoardModel window = new PackedBoardModel();
+        window.initHiddenBoard(windowSize, windowSize);
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                int neighborX = chunkX + i;
+                int neighborY = chunkY + j;
+                if (neighborX < 0 || neighborY < 0 || neighborX >= WORLD_SIZE >> CHUNK_SHIFT
+                        || neighborY >= WORLD_SIZE >> CHUNK_SHIFT) {
+                    continue;
+                }
+                for (int index : chunkMines(neighborX, neighborY)) {
+                    int x = (index % CHUNK_SIZE) + i * CHUNK_SIZE + 1;
+                    int y = (index / CHUNK_SIZE) + j * CHUNK_SIZE + 1;
+                    if (x >= 0 && y >= 0 && x < windowSize && y < windowSize) {
+                        window.setHiddenCellType(x, y, CellType.MINE);
+                    }
+                }
+            }
+        }
+        service.defineOtherCells(window);
+        PackedBoardModel chunk = new PackedBoardModel();
+        chunk.initHiddenBoard(CHUNK_SIZE, CHUNK_SIZE);
+        chunk.initVisibleBoard(CHUNK_SIZE, CHUNK_SIZE);
+        for (int x = 0; x < CHUNK_SIZE; x++) {
+            for (int y = 0; y < CHUNK_SIZE; y++) {
+                chunk.setHiddenCellType(x, y, window.getHiddenCellType(x + 1, y + 1));
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Расположение мин участка. Зависит только от зерна мира, координат участка и первого клика
+     */
+    private int[] chunkMines(int chunkX, int chunkY) {
+        long seed = new SplittableRandom(worldSeed ^ (chunkX * 0x9E3779B97F4A7C15L)
+                ^ (chunkY * 0xC2B2AE3D27D4EB4FL)).nextLong();
+        int originX = chunkX << CHUNK_SHIFT;
+        int originY = chunkY << CHUNK_SHIFT;
+        int localX = firstX == MinePlacer.NO_FIRST_CLICK ? MinePlacer.NO_FIRST_CLICK : firstX - originX;
+        int localY = firstY == MinePlacer.NO_FIRST_CLICK ? MinePlacer.NO_FIRST_CLICK : firstY - originY;
+        return new MinePlacer().placeMines(CHUNK_SIZE, CHUNK_SIZE, MINES_PER_CHUNK, seed, localX, localY);
+    }
+}
@@ -0,0 +1,169 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Модель поля для совместной игры, в которой клетки одного поля меняют одновременно несколько потоков.
+ * Поля хранятся так же, как в {@link PackedBoardModel}: 4 бита на клетку, 16 клеток в long, каждая строка
+ * начинается с нового элемента. Элементы видимого поля меняются только сравнением с обменом через {@link VarHandle},
+ * поэтому одновременное изменение соседних клеток одного элемента не теряет ни одного обновления, а открыть
+ * клетку может только один поток - тот, чей обмен прошел.
+ * <p>
+ * Скрытое поле заполняется до начала игры и затем только читается, поэтому хранится в обычном массиве
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see Minesweeper.main.Engine.SharedGame
+ */
+public class ConcurrentBoardModel implements BoardModelInterface {
+
+    private static final int BITS_PER_CELL = 4;
+    private static final int CELLS_PER_WORD = Long.SIZE / BITS_PER_CELL;
+    private static final long CELL_MASK = (1L << BITS_PER_CELL) - 1;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private int width;
+    private int height;
+    private int wordsPerRow;
+    private long[] hiddenBoard;
+    private long[] visibleBoard;
+
+    public void initVisibleBoard(int width, int height) {
+        resize(width, height);
+        visibleBoard = createBoard();
+    }
+
+    public void initHiddenBoard(int width, int height) {
+        resize(width, height);
+        hiddenBoard = createBoard();
+    }
+
+    private void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = PackedBoardModel.wordsPerRow(width);
+    }
+
+    private long[] createBoard() {
+        long[] board = new long[Math.multiplyExact(wordsPerRow, height)];
+        long closed = 0;
+        for (int i = 0; i < CELLS_PER_WORD; i++) {
+            closed |= (long) CellType.CLOSED.ordinal() << i * BITS_PER_CELL;
+        }
+        Arrays.fill(board, closed);
+        return board;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public CellType getHiddenCellType(int x, int y) {
+        return CellType.fromOrdinal((int) (hiddenBoard[index(x, y)] >>> shift(x) & CELL_MASK));
+    }
+
+    public void setHiddenCellType(int x, int y, CellType cellType) {
+        int index = index(x, y);
+        int shift = shift(x);
+        hiddenBoard[index] = hiddenBoard[index] & ~(CELL_MASK << shift) | (long) cellType.ordinal() << shift;
+    }
+
+    public CellType getVisibleCellType(int x, int y) {
+        long word = (long) WORDS.getVolatile(visibleBoard, index(x, y));
+        return CellType.fromOrdinal((int) (word >>> shift(x) & CELL_MASK));
+    }
+
+    /**
+     * Меняет тип клетки видимого поля независимо от прежнего. Соседние клетки того же элемента, измененные
+     * другими потоками, сохраняются
+     */
+    public void setVisibleCellType(int x, int y, CellType cellType) {
+        int index = index(x, y);
+        int shift = shift(x);
+        long word;
+        do {
+            word = (long) WORDS.getVolatile(visibleBoard, index);
+        } while (!WORDS.compareAndSet(visibleBoard, index, word,
+                word & ~(CELL_MASK << shift) | (long) cellType.ordinal() << shift));
+    }
+
+    /**
+     * Меняет тип клетки видимого поля, если он равен ожидаемому
+     *
+     * @return true, если тип изменен этим вызовом, false, если клетка уже имеет другой тип
+     */
+    public boolean compareAndSetVisibleCellType(int x, int y, CellType expected, CellType cellType) {
+        int index = index(x, y);
+        int shift = shift(x);
+        while (true) {
+            long word = (long) WORDS.getVolatile(visibleBoard, index);
+            if ((word >>> shift & CELL_MASK) != expected.ordinal()) {
+                return false;
+            }
+            if (WORDS.compareAndSet(visibleBoard, index, word,
+                    word & ~(CELL_MASK << shift) | (long) cellType.ordinal() << shift)) {
+                return true;
+            }
+        }
+    }
+
+    private int index(int x, int y) {
+        return y * wordsPerRow + x / CELLS_PER_WORD;
+    }
+
+    private static int shift(int x) {
+        return (x % CELLS_PER_WORD) * BITS_PER_CELL;
+    }
+
+    /**
+     * Возвращает копию скрытого поля в виде массива ячеек. Используется только для совместимости
+     */
+    public Cell[][] getHiddenBoard() {
+        return hiddenBoard == null ? null : toCells(true);
+    }
+
+    /**
+     * Возвращает копию видимого поля в виде массива ячеек. Используется только для совместимости
+     */
+    public Cell[][] getVisibleBoard() {
+        return visibleBoard == null ? null : toCells(false);
+    }
+
+    public void setHiddenBoard(Cell[][] hiddenBoard) {
+        initHiddenBoard(hiddenBoard.length, hiddenBoard[0].length);
+        for (Cell[] column : hiddenBoard) {
+            for (Cell cell : column) {
+                setHiddenCellType(cell.getX(), cell.getY(), cell.getCellType());
+            }
+        }
+    }
+
+    public void setVisibleBoard(Cell[][] visibleBoard) {
+        initVisibleBoard(visibleBoard.length, visibleBoard[0].length);
+        for (Cell[] column : visibleBoard) {
+            for (Cell cell : column) {
+                setVisibleCellType(cell.getX(), cell.getY(), cell.getCellType());
+            }
+        }
+    }
+
+    private Cell[][] toCells(boolean hidden) {
+        Cell[][] cells = new Cell[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                cells[x][y] = new Cell(x, y);
+                cells[x][y].setCellType(hidden ? getHiddenCellType(x, y) : getVisibleCellType(x, y));
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,70 @@
+package Minesweeper.main.BoardMVC;
+
+/**
+ * Класс накапливает прямоугольник клеток видимого поля, измененных последним действием игрока.
+ * По нему вид перерисовывает только изменившуюся часть панели
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see BoardView#repaintCells
+ */
+public class DirtyRegion {
+
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    public DirtyRegion() {
+        clear();
+    }
+
+    /**
+     * Добавляет клетку в прямоугольник измененных клеток
+     *
+     * @param x, @param y - координаты клетки
+     */
+    public void add(int x, int y) {
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    /**
+     * Добавляет в прямоугольник все поле. Используется, когда изменения разбросаны по всему полю, например при проигрыше
+     *
+     * @param width, @param height - размеры поля
+     */
+    public void addAll(int width, int height) {
+        add(0, 0);
+        add(width - 1, height - 1);
+    }
+
+    public void clear() {
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        maxY = Integer.MIN_VALUE;
+    }
+
+    public boolean isEmpty() {
+        return minX > maxX;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+}
@@ -0,0 +1,168 @@
+package Minesweeper.main.BoardMVC;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Класс выбирает положения мин частичным тасованием Фишера-Йетса по номерам клеток-кандидатов.
+ * Массив кандидатов не создается: хранятся только переставленные элементы, поэтому время и память
+ * пропорциональны количеству мин при любой плотности поля.
+ * <p>
+ * Из кандидатов исключается квадрат вокруг первого клика (по умолчанию 3x3). Результат полностью определяется
+ * параметрами (ширина, высота, количество мин, зерно, первый клик), что позволяет воспроизводить игровые поля
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see BoardService#putMinesAtBoard
+ */
+public class MinePlacer {
+
+    /**
+     * Радиус безопасной зоны по умолчанию: квадрат 3x3 с центром в первом клике
+     */
+    public static final int DEFAULT_SAFE_RADIUS = 1;
+
+    /**
+     * Значение координат первого клика, при котором безопасная зона не выделяется
+     */
+    public static final int NO_FIRST_CLICK = Integer.MIN_VALUE;
+
+    private final int safeRadius;
+
+    public MinePlacer() {
+        this(DEFAULT_SAFE_RADIUS);
+    }
+
+    /**
+     * @param safeRadius - радиус безопасной зоны вокруг первого клика, 0 - исключается только сама клетка
+     */
+    public MinePlacer(int safeRadius) {
+        if (safeRadius < 0) {
+            throw new IllegalArgumentException("Safe radius must not be negative: " + safeRadius);
+        }
+        this.safeRadius = safeRadius;
+    }
+
+    public int getSafeRadius() {
+        return safeRadius;
+    }
+
+    /**
+     * Выбирает клетки для мин
+     *
+     * @param width            - ширина поля
+     * @param height           - высота поля
+     * @param mines            - количество мин
+     * @param seed             - зерно генератора случайных чисел
+     * @param firstX, @param firstY - координаты первого клика, могут лежать за пределами поля: тогда исключается только
+     *                  попавшая на поле часть зоны. {@link MinePlacer#NO_FIRST_CLICK} - безопасной зоны нет
+     * @return массив индексов клеток с минами (y * width + x)
+     */
+    public int[] placeMines(int width, int height, int mines, long seed, int firstX, int firstY) {
+        int size = Math.multiplyExact(width, height);
+        if (mines < 0 || mines > size) {
+            throw new IllegalArgumentException("Cannot place " + mines + " mines on " + width + "x" + height);
+        }
+        int[] excluded = safeZone(width, height, firstX, firstY, safeRadius);
+        if (mines > size - excluded.length) {
+            excluded = safeZone(width, height, firstX, firstY, 0);
+            if (mines > size - excluded.length) {
+                throw new IllegalArgumentException("Cannot place " + mines + " mines on " + width + "x" + height
+                        + " outside of the first click");
+            }
+        }
+        int candidates = size - excluded.length;
+        SplittableRandom random = new SplittableRandom(seed);
+        SwapTable swaps = new SwapTable(mines);
+        int[] result = new int[mines];
+        for (int i = 0; i < mines; i++) {
+            int j = i + random.nextInt(candidates - i);
+            int chosen = swaps.get(j);
+            swaps.put(j, swaps.get(i));
+            result[i] = toIndex(chosen, excluded);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает отсортированные по возрастанию индексы клеток безопасной зоны, обрезанной границами поля
+     */
+    private static int[] safeZone(int width, int height, int firstX, int firstY, int radius) {
+        int fromX = (int) Math.max((long) firstX - radius, 0);
+        int toX = (int) Math.min((long) firstX + radius, width - 1);
+        int fromY = (int) Math.max((long) firstY - radius, 0);
+        int toY = (int) Math.min((long) firstY + radius, height - 1);
+        if (firstX == NO_FIRST_CLICK || firstY == NO_FIRST_CLICK || fromX > toX || fromY > toY) {
+            return new int[0];
+        }
+        int[] zone = new int[(toX - fromX + 1) * (toY - fromY + 1)];
+        int i = 0;
+        for (int y = fromY; y <= toY; y++) {
+            for (int x = fromX; x <= toX; x++) {
+                zone[i++] = y * width + x;
+            }
+        }
+        return zone;
+    }
+
+    /**
+     * Переводит номер кандидата в индекс клетки, пропуская клетки безопасной зоны
+     */
+    private static int toIndex(int candidate, int[] excluded) {
+        int index = candidate;
+        for (int cell : excluded) {
+            if (cell > index) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Разреженное представление тасуемого массива кандидатов: хэш-таблица с открытой адресацией на примитивных
+     * массивах, хранящая только переставленные элементы. Отсутствующий элемент с номером i равен i
+     */
+    private static class SwapTable {
+
+        private static final int EMPTY = -1;
+
+        private final int[] keys;
+        private final int[] values;
+        private final int mask;
+        private final int shift;
+
+        SwapTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            shift = Integer.numberOfLeadingZeros(capacity) + 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int get(int key) {
+            for (int slot = hash(key); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return key;
+                }
+            }
+        }
+
+        void put(int key, int value) {
+            int slot = hash(key);
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private int hash(int key) {
+            return (key * 0x9E3779B9) >>> shift;
+        }
+    }
+}
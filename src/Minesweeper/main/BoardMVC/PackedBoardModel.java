@@ -0,0 +1,236 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.util.Arrays;
+
+/**
+ * Компактная модель игрового поля. Вместо двух массивов {@link Cell}[][] скрытое и видимое поля хранятся
+ * в массивах long: на каждую клетку отводится 4 бита (порядковый номер {@link CellType}), в одном long - 16 клеток.
+ * Координаты клетки не хранятся, а вычисляются по ее положению в массиве.
+ * <p>
+ * Каждая строка поля начинается с нового элемента массива, поэтому клетки разных строк никогда не делят один long
+ * и строки можно изменять из разных потоков независимо друг от друга.
+ * <p>
+ * Поле занимает около одного байта на клетку против нескольких десятков байт у {@link BoardModel}
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class PackedBoardModel implements BoardModelInterface {
+
+    /**
+     * Количество бит на одну клетку и количество клеток в одном элементе массива
+     */
+    private static final int BITS_PER_CELL = 4;
+    private static final int CELLS_PER_WORD = Long.SIZE / BITS_PER_CELL;
+    private static final long CELL_MASK = (1L << BITS_PER_CELL) - 1;
+
+    /**
+     * Элемент массива, все 16 клеток которого имеют тип CellType.CLOSED
+     */
+    private static final long CLOSED_WORD = repeat(CellType.CLOSED);
+
+    private int width;
+    private int height;
+
+    /**
+     * Количество элементов массива на одну строку поля
+     */
+    private int wordsPerRow;
+
+    /**
+     * Скрытое поле в упакованном виде
+     *
+     * @see BoardController#createHiddenBoard
+     */
+    private long[] hiddenBoard;
+
+    /**
+     * Видимое поле в упакованном виде
+     *
+     * @see BoardController#createVisibleBoard
+     */
+    private long[] visibleBoard;
+
+    public void initVisibleBoard(int width, int height) {
+        resize(width, height);
+        visibleBoard = createBoard();
+    }
+
+    public void initHiddenBoard(int width, int height) {
+        resize(width, height);
+        hiddenBoard = createBoard();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public CellType getHiddenCellType(int x, int y) {
+        return CellType.fromOrdinal(get(hiddenBoard, x, y));
+    }
+
+    public CellType getVisibleCellType(int x, int y) {
+        return CellType.fromOrdinal(get(visibleBoard, x, y));
+    }
+
+    public void setHiddenCellType(int x, int y, CellType cellType) {
+        set(hiddenBoard, x, y, cellType.ordinal());
+    }
+
+    public void setVisibleCellType(int x, int y, CellType cellType) {
+        set(visibleBoard, x, y, cellType.ordinal());
+    }
+
+    /**
+     * Возвращает копию скрытого поля в виде массива ячеек. Используется только для совместимости,
+     * так как создает объект на каждую клетку
+     */
+    public Cell[][] getHiddenBoard() {
+        return hiddenBoard == null ? null : unpack(hiddenBoard);
+    }
+
+    /**
+     * Возвращает копию видимого поля в виде массива ячеек. Используется только для совместимости,
+     * так как создает объект на каждую клетку
+     */
+    public Cell[][] getVisibleBoard() {
+        return visibleBoard == null ? null : unpack(visibleBoard);
+    }
+
+    public void setHiddenBoard(Cell[][] hiddenBoard) {
+        resize(hiddenBoard.length, hiddenBoard[0].length);
+        this.hiddenBoard = pack(hiddenBoard);
+    }
+
+    public void setVisibleBoard(Cell[][] visibleBoard) {
+        resize(visibleBoard.length, visibleBoard[0].length);
+        this.visibleBoard = pack(visibleBoard);
+    }
+
+    /**
+     * Забирает скрытое поле другой модели без копирования. Видимое поле сохраняется, если размеры совпадают.
+     * Модель-источник после вызова скрытого поля не имеет
+     *
+     * @param source - модель с заполненным скрытым полем
+     */
+    public void takeHiddenBoard(PackedBoardModel source) {
+        resize(source.width, source.height);
+        hiddenBoard = source.hiddenBoard;
+        source.hiddenBoard = null;
+    }
+
+    /**
+     * Копия скрытого поля в упакованном виде: строки по {@link PackedBoardModel#wordsPerRow(int)} элементов,
+     * клетка x строки хранится в битах (x % 16) * 4 элемента x / 16
+     *
+     * @return копия или null, если скрытого поля нет
+     */
+    public long[] copyHiddenWords() {
+        return hiddenBoard == null ? null : hiddenBoard.clone();
+    }
+
+    /**
+     * Копия видимого поля в упакованном виде
+     *
+     * @see PackedBoardModel#copyHiddenWords()
+     */
+    public long[] copyVisibleWords() {
+        return visibleBoard == null ? null : visibleBoard.clone();
+    }
+
+    /**
+     * Заменяет поля упакованными массивами без копирования
+     *
+     * @param hiddenWords  - скрытое поле или null
+     * @param visibleWords - видимое поле
+     * @see PackedBoardModel#copyHiddenWords()
+     */
+    public void setWords(int width, int height, long[] hiddenWords, long[] visibleWords) {
+        resize(width, height);
+        long words = (long) wordsPerRow * height;
+        if (visibleWords.length != words || hiddenWords != null && hiddenWords.length != words) {
+            throw new IllegalArgumentException("Packed board must have " + words + " words");
+        }
+        hiddenBoard = hiddenWords;
+        visibleBoard = visibleWords;
+    }
+
+    /**
+     * Количество элементов упакованного массива на одну строку поля
+     */
+    public static int wordsPerRow(int width) {
+        return (width + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+    }
+
+    /**
+     * Служебный метод смены размеров поля. Поле другого размера становится недействительным
+     */
+    private void resize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Board size must be positive: " + width + "x" + height);
+        }
+        if (this.width != width || this.height != height) {
+            this.width = width;
+            this.height = height;
+            this.wordsPerRow = wordsPerRow(width);
+            hiddenBoard = null;
+            visibleBoard = null;
+        }
+    }
+
+    private long[] createBoard() {
+        long[] words = new long[Math.multiplyExact(wordsPerRow, height)];
+        Arrays.fill(words, CLOSED_WORD);
+        return words;
+    }
+
+    private int get(long[] words, int x, int y) {
+        return (int) (words[y * wordsPerRow + x / CELLS_PER_WORD] >>> shift(x)) & (int) CELL_MASK;
+    }
+
+    private void set(long[] words, int x, int y, int value) {
+        int index = y * wordsPerRow + x / CELLS_PER_WORD;
+        int shift = shift(x);
+        words[index] = (words[index] & ~(CELL_MASK << shift)) | ((long) value << shift);
+    }
+
+    private static int shift(int x) {
+        return (x % CELLS_PER_WORD) * BITS_PER_CELL;
+    }
+
+    private long[] pack(Cell[][] cells) {
+        long[] words = createBoard();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                set(words, x, y, cells[x][y].getCellType().ordinal());
+            }
+        }
+        return words;
+    }
+
+    private Cell[][] unpack(long[] words) {
+        Cell[][] cells = new Cell[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                cells[x][y] = new Cell(x, y);
+                cells[x][y].setCellType(CellType.fromOrdinal(get(words, x, y)));
+            }
+        }
+        return cells;
+    }
+
+    private static long repeat(CellType cellType) {
+        long word = 0;
+        for (int i = 0; i < CELLS_PER_WORD; i++) {
+            word = (word << BITS_PER_CELL) | cellType.ordinal();
+        }
+        return word;
+    }
+}
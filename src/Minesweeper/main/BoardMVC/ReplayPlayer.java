@@ -0,0 +1,73 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.Engine.GameEngine;
+import Minesweeper.main.Engine.GameJournal;
+import Minesweeper.main.Engine.JournalReplayer;
+import Minesweeper.main.Engine.MoveResult;
+
+import javax.swing.*;
+import java.util.function.Consumer;
+
+/**
+ * Воспроизведение игры из журнала на экране в реальном времени. Ходы выполняются таймером Swing в потоке обработки
+ * событий с теми же паузами, что и в записанной игре. Паузы длиннее {@link ReplayPlayer#MAX_DELAY} сокращаются
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see JournalReplayer
+ */
+public class ReplayPlayer {
+
+    /**
+     * Наибольшая пауза между ходами в миллисекундах
+     */
+    public static final int MAX_DELAY = 3000;
+
+    private final GameEngine engine;
+    private final GameJournal journal;
+    private final GameJournal.Cursor cursor;
+    private final Consumer<MoveResult> listener;
+    private final Timer timer;
+
+    /**
+     * @param engine   - движок, на котором воспроизводится игра
+     * @param journal  - журнал игры
+     * @param listener - получает результат каждого хода, например для перерисовки измененных клеток
+     */
+    public ReplayPlayer(GameEngine engine, GameJournal journal, Consumer<MoveResult> listener) {
+        this.engine = engine;
+        this.journal = journal;
+        this.cursor = journal.cursor();
+        this.listener = listener;
+        this.timer = new Timer(0, event -> step());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Начинает записанную игру на движке и запускает воспроизведение ходов
+     */
+    public void start() {
+        JournalReplayer.begin(journal, engine);
+        scheduleNext();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    public boolean isRunning() {
+        return timer.isRunning();
+    }
+
+    private void step() {
+        listener.accept(JournalReplayer.apply(engine, cursor.getAction(), cursor.getX(), cursor.getY()));
+        scheduleNext();
+    }
+
+    private void scheduleNext() {
+        if (cursor.next()) {
+            timer.setInitialDelay((int) Math.min(cursor.getDelayMillis(), MAX_DELAY));
+            timer.restart();
+        }
+    }
+}
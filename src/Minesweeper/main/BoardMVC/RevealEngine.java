@@ -0,0 +1,336 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс открывает область пустых клеток поиском в ширину. Вместо рекурсии используется очередь индексов клеток
+ * в массиве int, который переиспользуется между вызовами, поэтому глубина стека постоянна, а на каждую
+ * открытую клетку не создается ни одного объекта.
+ * <p>
+ * Отметкой о посещении служит само видимое поле: клетка попадает в очередь только в момент открытия,
+ * а открытая клетка повторно не открывается.
+ * <p>
+ * Если область оказывается больше {@link RevealEngine#PARALLEL_THRESHOLD} клеток, заливка продолжается параллельно
+ * в {@link ForkJoinPool}: сначала задачи {@link DiscoverTask} находят оставшуюся часть области, отмечая клетки
+ * в общей битовой карте, затем задачи {@link ApplyTask} открывают отмеченные клетки полосами строк. Открывается
+ * та же связная область, что и последовательной заливкой, меняется только порядок открытия
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see BoardListenerService#onLeftClick
+ */
+public class RevealEngine {
+
+    /**
+     * Количество клеток, открытых последовательно, после которого заливка продолжается параллельно.
+     * Задается параметром -Dminesweeper.parallelReveal, 0 - только последовательная заливка
+     */
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("minesweeper.parallelReveal", 1 << 16);
+
+    /**
+     * Порог параллельной заливки этого экземпляра
+     */
+    private final int parallelThreshold;
+
+    /**
+     * Кольцевая очередь координат клеток, каждая клетка занимает два элемента: x и y. Координаты хранятся отдельно,
+     * а не индексом, чтобы очередь работала и с полями, число клеток которых не помещается в int.
+     * Размер - степень двойки, при переполнении удваивается
+     */
+    private int[] queue = new int[256];
+    private int head;
+    private int size;
+
+    public RevealEngine() {
+        this(PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param parallelThreshold - количество клеток, открытых последовательно, после которого заливка продолжается
+     *                          параллельно, 0 - только последовательная заливка
+     */
+    public RevealEngine(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Открывает пустую клетку и всю связанную с ней область пустых клеток вместе с цифрами на ее границе
+     *
+     * @param x,          @param y - координаты пустой клетки скрытого поля
+     * @param model       - модель игрового поля
+     * @param dirtyRegion - прямоугольник, в который добавляются открытые клетки
+     * @return количество клеток, открытых этим вызовом
+     */
+    public int reveal(int x, int y, BoardModelInterface model, DirtyRegion dirtyRegion) {
+        int width = model.getWidth();
+        int height = model.getHeight();
+        int revealed = model.getVisibleCellType(x, y).isClosed() ? 1 : 0;
+        model.setVisibleCellType(x, y, CellType.EMPTY);
+        dirtyRegion.add(x, y);
+        head = 0;
+        size = 0;
+        offer(x, y);
+        boolean parallel = isParallel(model);
+        while (size > 0) {
+            if (parallel && revealed >= parallelThreshold) {
+                return revealed + revealParallel(model, dirtyRegion);
+            }
+            int cellX = poll();
+            int cellY = poll();
+            for (int i = Math.max(cellX - 1, 0); i <= Math.min(cellX + 1, width - 1); i++) {
+                for (int j = Math.max(cellY - 1, 0); j <= Math.min(cellY + 1, height - 1); j++) {
+                    if (!model.getVisibleCellType(i, j).isClosed()) {
+                        continue;
+                    }
+                    CellType cellType = model.getHiddenCellType(i, j);
+                    if (cellType == CellType.MINE) {
+                        continue;
+                    }
+                    model.setVisibleCellType(i, j, cellType);
+                    dirtyRegion.add(i, j);
+                    revealed++;
+                    if (cellType == CellType.EMPTY) {
+                        offer(i, j);
+                    }
+                }
+            }
+        }
+        return revealed;
+    }
+
+    /**
+     * Параллельная заливка возможна, если в пуле больше одного потока, индекс клетки помещается в int, а клетки
+     * модели можно читать из нескольких потоков. Участки бесконечного поля создаются при первом чтении,
+     * поэтому оно заливается только последовательно
+     */
+    private boolean isParallel(BoardModelInterface model) {
+        return parallelThreshold > 0 && ForkJoinPool.getCommonPoolParallelism() > 1
+                && !(model instanceof ChunkedBoardModel)
+                && (long) model.getWidth() * model.getHeight() <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Продолжает заливку параллельно от клеток, оставшихся в очереди. Эти клетки уже открыты, а их соседи еще
+     * не просмотрены. Открывать клетки из нескольких потоков можно только в {@link PackedBoardModel}, где каждая
+     * строка хранится в своих элементах массива. Остальные модели, в том числе запись ходов для отмены,
+     * получают найденные клетки в текущем потоке
+     *
+     * @return количество клеток, открытых параллельной частью заливки
+     */
+    private int revealParallel(BoardModelInterface model, DirtyRegion dirtyRegion) {
+        int width = model.getWidth();
+        int[] frontier = new int[size / 2];
+        for (int i = 0; i < frontier.length; i++) {
+            int cellX = poll();
+            int cellY = poll();
+            frontier[i] = cellY * width + cellX;
+        }
+        AtomicLongArray visited = new AtomicLongArray((int) (((long) width * model.getHeight() + 63) >>> 6));
+        ForkJoinPool.commonPool().invoke(new DiscoverTask(model, visited, frontier, frontier.length));
+        ApplyTask apply = new ApplyTask(model, visited, 0, model.getHeight());
+        if (model instanceof PackedBoardModel) {
+            ForkJoinPool.commonPool().invoke(apply);
+        } else {
+            apply.applyRows();
+        }
+        if (apply.revealed > 0) {
+            dirtyRegion.add(apply.minX, apply.minY);
+            dirtyRegion.add(apply.maxX, apply.maxY);
+        }
+        return apply.revealed;
+    }
+
+    private void offer(int x, int y) {
+        if (size + 2 > queue.length) {
+            grow();
+        }
+        queue[(head + size) & (queue.length - 1)] = x;
+        queue[(head + size + 1) & (queue.length - 1)] = y;
+        size += 2;
+    }
+
+    private int poll() {
+        int value = queue[head];
+        head = (head + 1) & (queue.length - 1);
+        size--;
+        return value;
+    }
+
+    private void grow() {
+        int[] grown = new int[queue.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = queue[(head + i) & (queue.length - 1)];
+        }
+        queue = grown;
+        head = 0;
+    }
+
+    /**
+     * Поиск клеток области от части фронта заливки. Задача проходит клетки своим стеком и, когда стек вырастает
+     * больше двух порций, отдает половину новой задаче, которую может забрать свободный поток пула.
+     * Клетка достается задаче, установившей ее бит в общей битовой карте, поэтому каждая клетка обрабатывается
+     * один раз. Видимое поле во время поиска не меняется
+     */
+    static class DiscoverTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Размер порции фронта, которую задача обрабатывает сама
+         */
+        private static final int CHUNK_SIZE = 1 << 10;
+
+        private final BoardModelInterface model;
+        private final AtomicLongArray visited;
+        private int[] stack;
+        private int size;
+
+        DiscoverTask(BoardModelInterface model, AtomicLongArray visited, int[] stack, int size) {
+            this.model = model;
+            this.visited = visited;
+            this.stack = stack;
+            this.size = size;
+        }
+
+        @Override
+        protected void compute() {
+            int width = model.getWidth();
+            int height = model.getHeight();
+            List<DiscoverTask> forked = new ArrayList<>();
+            while (size > 0) {
+                if (size > 2 * CHUNK_SIZE) {
+                    int half = size / 2;
+                    size -= half;
+                    forked.add((DiscoverTask) new DiscoverTask(model, visited,
+                            Arrays.copyOfRange(stack, size, size + half), half).fork());
+                }
+                int cell = stack[--size];
+                int cellX = cell % width;
+                int cellY = cell / width;
+                for (int j = Math.max(cellY - 1, 0); j <= Math.min(cellY + 1, height - 1); j++) {
+                    for (int i = Math.max(cellX - 1, 0); i <= Math.min(cellX + 1, width - 1); i++) {
+                        if (!model.getVisibleCellType(i, j).isClosed()) {
+                            continue;
+                        }
+                        CellType cellType = model.getHiddenCellType(i, j);
+                        if (cellType == CellType.MINE || !mark(j * width + i)) {
+                            continue;
+                        }
+                        if (cellType == CellType.EMPTY) {
+                            if (size == stack.length) {
+                                stack = Arrays.copyOf(stack, Math.max(size * 2, 16));
+                            }
+                            stack[size++] = j * width + i;
+                        }
+                    }
+                }
+            }
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                forked.get(i).join();
+            }
+        }
+
+        /**
+         * @return true, если бит клетки установил этот вызов
+         */
+        private boolean mark(int cell) {
+            int word = cell >>> 6;
+            long bit = 1L << cell;
+            while (true) {
+                long bits = visited.get(word);
+                if ((bits & bit) != 0) {
+                    return false;
+                }
+                if (visited.compareAndSet(word, bits, bits | bit)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Открытие клеток, отмеченных в битовой карте, в полосе строк. Большие полосы делятся пополам. Задача
+     * считает открытые клетки и прямоугольник, который их содержит
+     */
+    static class ApplyTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int BAND_SIZE = 1 << 14;
+
+        private final BoardModelInterface model;
+        private final AtomicLongArray visited;
+        private final int fromY;
+        private final int toY;
+        private int revealed;
+        private int minX = Integer.MAX_VALUE;
+        private int minY = Integer.MAX_VALUE;
+        private int maxX = Integer.MIN_VALUE;
+        private int maxY = Integer.MIN_VALUE;
+
+        ApplyTask(BoardModelInterface model, AtomicLongArray visited, int fromY, int toY) {
+            this.model = model;
+            this.visited = visited;
+            this.fromY = fromY;
+            this.toY = toY;
+        }
+
+        @Override
+        protected void compute() {
+            int width = model.getWidth();
+            if ((long) (toY - fromY) * width > BAND_SIZE && toY - fromY > 1) {
+                int middle = (fromY + toY) >>> 1;
+                ApplyTask top = new ApplyTask(model, visited, fromY, middle);
+                ApplyTask bottom = new ApplyTask(model, visited, middle, toY);
+                invokeAll(top, bottom);
+                merge(top);
+                merge(bottom);
+                return;
+            }
+            applyRows();
+        }
+
+        /**
+         * Открывает отмеченные клетки всей полосы в текущем потоке
+         */
+        void applyRows() {
+            int width = model.getWidth();
+            int from = fromY * width;
+            int to = toY * width;
+            for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+                long bits = visited.get(word);
+                while (bits != 0) {
+                    int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (cell < from || cell >= to) {
+                        continue;
+                    }
+                    int x = cell % width;
+                    int y = cell / width;
+                    model.setVisibleCellType(x, y, model.getHiddenCellType(x, y));
+                    revealed++;
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+
+        private void merge(ApplyTask task) {
+            revealed += task.revealed;
+            minX = Math.min(minX, task.minX);
+            minY = Math.min(minY, task.minY);
+            maxX = Math.max(maxX, task.maxX);
+            maxY = Math.max(maxY, task.maxY);
+        }
+    }
+}
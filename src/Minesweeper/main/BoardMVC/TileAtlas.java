@@ -0,0 +1,81 @@
+package Minesweeper.main.BoardMVC;
+
+import Minesweeper.main.CellType;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+
+/**
+ * Набор иконок игровых клеток. Иконки загружаются один раз за время работы программы из classpath
+ * (папка /resources) и приводятся к формату, совместимому с экраном, чтобы их отрисовка не требовала преобразований
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see BoardView
+ */
+public final class TileAtlas {
+
+    private static TileAtlas instance;
+
+    /**
+     * Иконки, проиндексированные порядковым номером {@link CellType}
+     */
+    private final Image[] images;
+
+    private TileAtlas() {
+        CellType[] cellTypes = CellType.values();
+        images = new Image[cellTypes.length];
+        GraphicsConfiguration configuration = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        for (CellType cellType : cellTypes) {
+            images[cellType.ordinal()] = toCompatible(read(cellType.name() + ".png"), configuration);
+        }
+    }
+
+    /**
+     * Возвращает набор иконок, загружая его при первом обращении
+     */
+    public static synchronized TileAtlas getInstance() {
+        if (instance == null) {
+            instance = new TileAtlas();
+        }
+        return instance;
+    }
+
+    public Image getImage(CellType cellType) {
+        return images[cellType.ordinal()];
+    }
+
+    /**
+     * Читает иконку из classpath. Если папка resources не добавлена в classpath, иконка читается из рабочей папки
+     */
+    private static BufferedImage read(String name) {
+        try {
+            URL url = TileAtlas.class.getResource("/" + name);
+            BufferedImage image = url != null ? ImageIO.read(url) : ImageIO.read(new File("resources/" + name));
+            if (image == null) {
+                throw new IOException("Unsupported image format: " + name);
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load tile " + name, e);
+        }
+    }
+
+    private static Image toCompatible(BufferedImage image, GraphicsConfiguration configuration) {
+        if (configuration == null) {
+            return image;
+        }
+        BufferedImage compatible = configuration.createCompatibleImage(image.getWidth(), image.getHeight(),
+                image.getTransparency());
+        Graphics2D graphics = compatible.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return compatible;
+    }
+}
@@ -10,11 +10,37 @@ import Minesweeper.main.BoardMVC.Cell;
  */
 public interface BoardModelInterface {
 
-    Cell[][] getVisibleBoard();
+    /**
+     * Создает видимое поле заданного размера, все клетки которого имеют тип CellType.CLOSED
+     *
+     * @param width  - ширина поля
+     * @param height - высота поля
+     */
+    void initVisibleBoard(int width, int height);
 
-    Cell[][] getHiddenBoard();
+    /**
+     * Создает пустое скрытое поле заданного размера, все клетки которого имеют тип CellType.CLOSED.
+     * Далее на нем располагаются мины и цифры
+     *
+     * @param width  - ширина поля
+     * @param height - высота поля
+     */
+    void initHiddenBoard(int width, int height);
 
-    void setVisibleBoard(Cell[][] visibleBoard);
+    int getWidth();
 
-    void setHiddenBoard(Cell[][] hiddenBoard);
+    int getHeight();
+
+    /**
+     * Методы поклеточного доступа к полям. Позволяют сервисам и виду работать с любой реализацией модели,
+     * не создавая объектов {@link Cell} при каждом обращении. Изменение клеток разных строк из разных потоков
+     * допускается
+     */
+    CellType getHiddenCellType(int x, int y);
+
+    CellType getVisibleCellType(int x, int y);
+
+    void setHiddenCellType(int x, int y, CellType cellType);
+
+    void setVisibleCellType(int x, int y, CellType cellType);
 }
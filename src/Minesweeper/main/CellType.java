@@ -1,14 +1,11 @@
 package Minesweeper.main;
 
-import Minesweeper.main.BoardMVC.BoardView;
-
-import java.awt.*;
-
 /**
- * Перечисление типов игровых клеток
+ * Перечисление типов игровых клеток. Каждый тип отображается одноименной иконкой из папки /resources
  *
  * @author Кристина Зеленько
  * @version 1.0
+ * @see Minesweeper.main.BoardMVC.TileAtlas
  */
 public enum CellType {
 
@@ -29,18 +26,27 @@ public enum CellType {
     WRONG_FLAG;
 
     /**
-     * Каждое перечисление ассоциируется с одноименной иконком
-     *
-     * @see BoardView#initCellType()
-     * @see /resources
+     * Кэш значений перечисления. {@link CellType#values()} при каждом вызове создает новый массив, поэтому
+     * упакованные модели поля восстанавливают тип клетки по порядковому номеру через этот кэш
      */
-    public Image image;
+    private static final CellType[] VALUES = values();
 
-    public Image getImage() {
-        return this.image;
+    /**
+     * Проверяет, скрыто ли содержимое клетки видимого поля от игрока: закрытая клетка, флаг или знак вопроса
+     *
+     * @return true, если клетка еще не открыта
+     */
+    public boolean isClosed() {
+        return this == CLOSED || this == FLAG || this == QUESTION;
     }
 
-    public void setImage(Image image) {
-        this.image = image;
+    /**
+     * Возвращает тип клетки по его порядковому номеру без создания новых объектов
+     *
+     * @param ordinal - порядковый номер типа
+     * @return тип клетки
+     */
+    public static CellType fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
     }
 }
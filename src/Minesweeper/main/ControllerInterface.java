@@ -20,4 +20,13 @@ public interface ControllerInterface {
     void checkActionPerformed(ActionEvent event);
 
     void checkGameStatus();
+
+    Difficulty getDifficulty();
+
+    /**
+     * Ширина и высота поля текущей игры
+     */
+    int getBoardWidth();
+
+    int getBoardHeight();
 }
@@ -10,15 +10,49 @@ public enum Difficulty {
 
     EASY(9, 9, 10),
     NORMAL(16, 16, 40),
-    HARD(30, 16, 99);
+    HARD(30, 16, 99),
+    /**
+     * Пользовательская сложность. Здесь хранятся параметры, которые предлагаются игроку по умолчанию, заданные им
+     * параметры хранит контроллер игры
+     */
+    CUSTOM(100, 100, 1500),
+    /**
+     * Бесконечное поле. Размер равен диапазону координат мира, мины расставляются по участкам по мере исследования
+     *
+     * @see Minesweeper.main.BoardMVC.ChunkedBoardModel
+     */
+    ENDLESS(1 << 20, 1 << 20, 0);
 
-    public int width;
-    public int height;
-    public int mines;
+    /**
+     * Максимальная ширина и высота поля пользовательской сложности
+     */
+    public static final int MAX_SIZE = 4096;
+
+    public final int width;
+    public final int height;
+    public final int mines;
 
     Difficulty(int width, int height, int mines) {
         this.width = width;
         this.height = height;
         this.mines = mines;
     }
+
+    /**
+     * Проверяет параметры поля пользовательской сложности. На поле должна остаться хотя бы одна клетка без мины
+     *
+     * @param width  - ширина поля, от 1 до {@link Difficulty#MAX_SIZE}
+     * @param height - высота поля, от 1 до {@link Difficulty#MAX_SIZE}
+     * @param mines  - количество мин
+     * @throws IllegalArgumentException если размеры или количество мин вне допустимых границ
+     */
+    public static void checkCustom(int width, int height, int mines) {
+        if (width < 1 || height < 1 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be between 1x1 and " + MAX_SIZE + "x" + MAX_SIZE
+                    + ": " + width + "x" + height);
+        }
+        if (mines < 0 || mines >= width * height) {
+            throw new IllegalArgumentException("Mines must be between 0 and " + (width * height - 1) + ": " + mines);
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package Minesweeper.main.Engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Фоновое автосохранение. Снимок игры {@link GameSnapshot} создается вызывающим потоком, а записывается в файл
+ * отдельным потоком, поэтому поток обработки событий Swing не ждет диска. Если предыдущий снимок еще не записан,
+ * он заменяется новым
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class AutoSaver {
+
+    /**
+     * Период автосохранения в секундах. Задается параметром -Dminesweeper.autosave, 0 выключает автосохранение
+     */
+    public static final int DEFAULT_PERIOD = Integer.getInteger("minesweeper.autosave", 30);
+
+    private final Path file;
+    private final ExecutorService executor;
+    private final AtomicReference<GameSnapshot> pending = new AtomicReference<>();
+    private volatile IOException lastError;
+
+    /**
+     * @param file - файл автосохранения
+     */
+    public AutoSaver(Path file) {
+        this.file = file;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Файл автосохранения по умолчанию: ~/.minesweeper/autosave.bin
+     */
+    public static Path defaultFile() {
+        return Paths.get(System.getProperty("user.home"), ".minesweeper", "autosave.bin");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Ставит снимок в очередь на запись
+     */
+    public void submit(GameSnapshot snapshot) {
+        if (pending.getAndSet(snapshot) == null) {
+            executor.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Удаляет файл автосохранения после уже поставленных в очередь записей. Снимок, ожидающий записи, отбрасывается
+     */
+    public void delete() {
+        pending.set(null);
+        executor.execute(() -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                lastError = e;
+            }
+        });
+    }
+
+    /**
+     * Последняя ошибка записи или удаления файла или null
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void writePending() {
+        GameSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            snapshot.write(file);
+        } catch (IOException e) {
+            lastError = e;
+        }
+    }
+}
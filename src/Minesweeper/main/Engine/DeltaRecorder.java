@@ -0,0 +1,59 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+/**
+ * Модель-обертка, через которую движок выполняет ходы при включенной истории {@link UndoHistory}.
+ * Все обращения передаются модели, а изменение клетки видимого поля перед этим записывается в историю
+ * вместе с прежним типом клетки
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+class DeltaRecorder implements BoardModelInterface {
+
+    private final BoardModelInterface model;
+    private final UndoHistory history;
+
+    DeltaRecorder(BoardModelInterface model, UndoHistory history) {
+        this.model = model;
+        this.history = history;
+    }
+
+    public void setVisibleCellType(int x, int y, CellType cellType) {
+        CellType previous = model.getVisibleCellType(x, y);
+        if (previous != cellType) {
+            history.record(y * model.getWidth() + x, previous);
+            model.setVisibleCellType(x, y, cellType);
+        }
+    }
+
+    public CellType getVisibleCellType(int x, int y) {
+        return model.getVisibleCellType(x, y);
+    }
+
+    public CellType getHiddenCellType(int x, int y) {
+        return model.getHiddenCellType(x, y);
+    }
+
+    public void setHiddenCellType(int x, int y, CellType cellType) {
+        model.setHiddenCellType(x, y, cellType);
+    }
+
+    public int getWidth() {
+        return model.getWidth();
+    }
+
+    public int getHeight() {
+        return model.getHeight();
+    }
+
+    public void initVisibleBoard(int width, int height) {
+        model.initVisibleBoard(width, height);
+    }
+
+    public void initHiddenBoard(int width, int height) {
+        model.initHiddenBoard(width, height);
+    }
+}
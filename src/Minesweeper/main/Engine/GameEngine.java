@@ -0,0 +1,674 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardMVC.BoardListenerService;
+import Minesweeper.main.BoardMVC.BoardService;
+import Minesweeper.main.BoardMVC.ChunkedBoardModel;
+import Minesweeper.main.BoardMVC.DirtyRegion;
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+import Minesweeper.main.Difficulty;
+import Minesweeper.main.GameStatus;
+import Minesweeper.main.Metrics.GameMetrics;
+import Minesweeper.main.Solver.ConstraintSolver;
+import Minesweeper.main.Solver.ProbabilityEngine;
+import Minesweeper.main.Solver.ProbabilityMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+
+/**
+ * Игровой движок без графического интерфейса. Хранит состояние одной игры и выполняет ходы: открытие клетки,
+ * установку флага и открытие клеток вокруг цифры. Движок не использует классы AWT/Swing, поэтому на нем работают
+ * боты, тесты и контроллер Swing {@link Minesweeper.main.BoardMVC.BoardController}, который только переводит
+ * события мыши в ходы движка.
+ * <p>
+ * Скрытое поле создается при первом открытии клетки, вокруг которой мин нет
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class GameEngine {
+
+    /**
+     * Режим отладки: после каждого хода счетчик неоткрытых клеток сверяется с полным обходом поля.
+     * Включается параметром -Dminesweeper.debug=true
+     */
+    private static final boolean DEBUG = Boolean.getBoolean("minesweeper.debug");
+
+    private final BoardModelInterface model;
+    private final BoardService service = new BoardService();
+    private final BoardListenerService listenerService = new BoardListenerService();
+    private final MoveResult result = new MoveResult();
+
+    /**
+     * Решатель, подключаемый по запросу {@link GameEngine#getSolver()}. После подключения получает изменения каждого хода
+     */
+    private ConstraintSolver solver;
+    private ProbabilityEngine probabilityEngine;
+
+    /**
+     * Режим полей без угадывания и результат последнего поиска такого поля
+     */
+    private NoGuessGenerator noGuessGenerator;
+    private NoGuessGenerator.Result lastGeneration;
+
+    /**
+     * Пул заранее созданных полей
+     */
+    private LayoutPool layoutPool;
+
+    /**
+     * Способ создания скрытого поля текущей игры и способ, заданный для воспроизведения игры из журнала
+     */
+    private GenerationMode generationMode = GenerationMode.NORMAL;
+    private GenerationMode replayMode;
+
+    /**
+     * Журнал, в который записываются игры движка, или null
+     */
+    private GameJournal journal;
+
+    /**
+     * История ходов для отмены, модель, записывающая в нее изменения клеток, и признак повтора отмененного хода
+     */
+    private UndoHistory undoHistory;
+    private DeltaRecorder deltaRecorder;
+    private boolean redoing;
+
+    /**
+     * Записывает ли движок показатели {@link GameMetrics}. Выключено по умолчанию, чтобы движки без окна
+     * (кандидаты поиска полей без угадывания, боты, воспроизведение журналов, сессии сервера) не смешивали
+     * свои замеры с замерами игрока
+     */
+    private boolean metrics;
+
+    /**
+     * Источник зерен для новых игр
+     */
+    private final SplittableRandom seeds;
+
+    private int width;
+    private int height;
+    private int mines;
+
+    /**
+     * Зерно текущей игры. Вместе с размерами поля, количеством мин и координатами первого клика однозначно
+     * определяет расположение мин
+     */
+    private long seed;
+
+    /**
+     * Создано ли скрытое поле, то есть был ли уже первый клик
+     */
+    private boolean started;
+
+    /**
+     * Время игры: время, набранное до последнего запуска часов, и момент запуска. Часы идут от первого клика
+     * до конца игры
+     */
+    private long elapsedMillis;
+    private long clockStartNanos;
+    private boolean clockRunning;
+
+    /**
+     * Количество ходов с начала игры или восстановления. Позволяет не сохранять игру, которая не менялась
+     */
+    private long moveCount;
+
+    public GameEngine() {
+        this(new PackedBoardModel());
+    }
+
+    public GameEngine(BoardModelInterface model) {
+        this(model, new SplittableRandom());
+    }
+
+    /**
+     * @param model - модель поля, с которой работает движок
+     * @param seeds - источник зерен новых игр. Движки с одинаковым источником воспроизводят одинаковые серии игр
+     */
+    public GameEngine(BoardModelInterface model, SplittableRandom seeds) {
+        this.model = model;
+        this.seeds = seeds;
+    }
+
+    /**
+     * Начинает новую игру со случайным зерном
+     *
+     * @param width  - ширина поля
+     * @param height - высота поля
+     * @param mines  - количество мин
+     */
+    public void newGame(int width, int height, int mines) {
+        newGame(width, height, mines, seeds.nextLong());
+    }
+
+    /**
+     * Начинает новую игру с заданным зерном. Видимое поле закрыто, скрытое поле будет создано при первом открытии
+     *
+     * @param seed - зерно расположения мин
+     */
+    public void newGame(int width, int height, int mines, long seed) {
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        this.seed = seed;
+        this.started = false;
+        replayMode = null;
+        elapsedMillis = 0;
+        clockRunning = false;
+        moveCount = 0;
+        if (undoHistory != null) {
+            undoHistory.clear();
+        }
+        model.initVisibleBoard(width, height);
+        if (journal != null) {
+            journal.newGame(width, height, mines, model.getWidth(), seed);
+        }
+        if (solver != null) {
+            solver.reset();
+        }
+        listenerService.startGame((int) Math.min((long) width * height, Integer.MAX_VALUE), mines);
+        if (layoutPool != null && !(model instanceof ChunkedBoardModel)) {
+            layoutPool.configure(width, height, mines);
+        }
+    }
+
+    /**
+     * Начинает игру, записанную в журнал. Скрытое поле будет создано первым кликом тем же способом, что и в записанной
+     * игре, без поиска поля без угадывания и без пула
+     *
+     * @param seed           - зерно созданного поля {@link GameJournal#getSeed()}
+     * @param generationMode - способ создания поля
+     * @see JournalReplayer
+     */
+    public void replayGame(int width, int height, int mines, long seed, GenerationMode generationMode) {
+        newGame(width, height, mines, seed);
+        replayMode = generationMode;
+    }
+
+    /**
+     * Подключает журнал, в который записываются параметры и ходы игр начиная со следующей новой игры
+     *
+     * @param journal - журнал или null
+     */
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    public GameJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Подключает историю ходов для отмены и повтора. На бесконечном поле история не ведется
+     *
+     * @param undoHistory - история или null
+     * @see GameEngine#undo()
+     */
+    public void setUndoHistory(UndoHistory undoHistory) {
+        this.undoHistory = undoHistory;
+        this.deltaRecorder = undoHistory == null || model instanceof ChunkedBoardModel
+                ? null : new DeltaRecorder(model, undoHistory);
+    }
+
+    public UndoHistory getUndoHistory() {
+        return undoHistory;
+    }
+
+    /**
+     * Включает режим полей, которые можно пройти без угадывания. Действует на обычном поле начиная
+     * со следующего первого клика, бесконечное поле создается как обычно
+     *
+     * @see NoGuessGenerator
+     */
+    public void setNoGuess(boolean noGuess) {
+        noGuessGenerator = noGuess ? new NoGuessGenerator() : null;
+    }
+
+    public boolean isNoGuess() {
+        return noGuessGenerator != null;
+    }
+
+    /**
+     * Включает запись показателей создания поля и заливки для игры в окне
+     *
+     * @see GameMetrics
+     */
+    public void setMetrics(boolean metrics) {
+        this.metrics = metrics;
+        listenerService.setMetrics(metrics);
+    }
+
+    /**
+     * Подключает пул заранее созданных полей. Поля из пула используются на обычном поле вне режима без угадывания:
+     * проходимость поля зависит от первого клика, а приспособление к клику ее не сохраняет
+     *
+     * @param layoutPool - пул или null
+     */
+    public void setLayoutPool(LayoutPool layoutPool) {
+        this.layoutPool = layoutPool;
+    }
+
+    /**
+     * Взято ли поле текущей игры из пула. Такое поле воспроизводится {@link LayoutPool#createLayout}, а не
+     * {@link BoardService#putMinesAtBoard}
+     */
+    public boolean isPooledLayout() {
+        return started && generationMode == GenerationMode.POOLED;
+    }
+
+    /**
+     * Способ создания скрытого поля текущей игры. Действителен после первого клика
+     */
+    public GenerationMode getGenerationMode() {
+        return generationMode;
+    }
+
+    /**
+     * Результат поиска поля без угадывания для текущей игры или null, если режим выключен
+     */
+    public NoGuessGenerator.Result getLastGeneration() {
+        return lastGeneration;
+    }
+
+    /**
+     * Создает скрытое поле, оставляя без мин зону вокруг первого клика. В режиме без угадывания зерно игры
+     * заменяется зерном найденного проходимого поля, а если такое поле не найдено, игра идет на обычном поле
+     * и записывается как обычная. При подключенном пуле зерно заменяется зерном готового поля из пула
+     *
+     * @param firstX, @param firstY - координаты первого клика
+     */
+    public void startGame(int firstX, int firstY) {
+        long start = metrics ? GameMetrics.start() : 0;
+        generate(firstX, firstY);
+        if (start != 0) {
+            GameMetrics.recordSince(GameMetrics.generation(width, height, mines, model instanceof ChunkedBoardModel),
+                    start);
+        }
+    }
+
+    private void generate(int firstX, int firstY) {
+        lastGeneration = null;
+        boolean bounded = !(model instanceof ChunkedBoardModel);
+        if (replayMode == GenerationMode.POOLED) {
+            LayoutPool.Layout layout = new LayoutPool.Layout(width, height, mines, seed);
+            if (!layout.adaptTo(firstX, firstY)) {
+                throw new IllegalStateException("Too many mines to replay a pooled layout: " + mines);
+            }
+            startPooled(layout, firstX, firstY);
+            return;
+        } else if (replayMode == null && noGuessGenerator != null && bounded) {
+            lastGeneration = noGuessGenerator.generate(width, height, mines, firstX, firstY, seed);
+            seed = lastGeneration.getSeed();
+        } else if (replayMode == null && layoutPool != null && bounded) {
+            LayoutPool.Layout layout = layoutPool.poll(width, height, mines);
+            if (layout != null && layout.adaptTo(firstX, firstY)) {
+                startPooled(layout, firstX, firstY);
+                return;
+            }
+        }
+        if (bounded) {
+            model.initHiddenBoard(width, height);
+            service.putMinesAtBoard(model, mines, firstX, firstY, seed);
+            service.defineOtherCells(model);
+        } else {
+            ((ChunkedBoardModel) model).startWorld(seed, firstX, firstY);
+            listenerService.startGame(Integer.MAX_VALUE, 0);
+        }
+        GenerationMode mode = !bounded ? GenerationMode.ENDLESS
+                : replayMode != null ? replayMode
+                : lastGeneration != null && lastGeneration.isFound() ? GenerationMode.NO_GUESS : GenerationMode.NORMAL;
+        markStarted(mode, firstX, firstY);
+    }
+
+    private void startPooled(LayoutPool.Layout layout, int firstX, int firstY) {
+        seed = layout.getSeed();
+        layout.copyTo(model);
+        markStarted(GenerationMode.POOLED, firstX, firstY);
+    }
+
+    private void markStarted(GenerationMode mode, int firstX, int firstY) {
+        generationMode = mode;
+        started = true;
+        clockStartNanos = System.nanoTime();
+        clockRunning = true;
+        if (journal != null) {
+            journal.startGame(seed, mode, firstX, firstY);
+        }
+    }
+
+    /**
+     * Открывает клетку. Первое открытие создает скрытое поле
+     *
+     * @param x, @param y - координаты клетки
+     * @return результат хода, действителен до следующего хода
+     */
+    public MoveResult reveal(int x, int y) {
+        DirtyRegion changedCells = beginMove();
+        if (isPlayable(x, y)) {
+            if (!started) {
+                startGame(x, y);
+            }
+            record(MoveAction.REVEAL, x, y);
+            return endMove(listenerService.onLeftClick(x, y, moveModel(MoveAction.REVEAL, x, y)), changedCells);
+        }
+        return endMove(0, changedCells);
+    }
+
+    /**
+     * Переключает отметку клетки: закрытая - флаг - знак вопроса - закрытая
+     *
+     * @param x, @param y - координаты клетки
+     * @return результат хода, действителен до следующего хода
+     */
+    public MoveResult flag(int x, int y) {
+        DirtyRegion changedCells = beginMove();
+        if (isPlayable(x, y)) {
+            record(MoveAction.FLAG, x, y);
+            listenerService.onRightClick(x, y, moveModel(MoveAction.FLAG, x, y));
+        }
+        return endMove(0, changedCells);
+    }
+
+    /**
+     * Открывает закрытые клетки вокруг открытой цифры, если вокруг нее стоит столько же флагов
+     *
+     * @param x, @param y - координаты открытой цифры
+     * @return результат хода, действителен до следующего хода
+     */
+    public MoveResult chord(int x, int y) {
+        DirtyRegion changedCells = beginMove();
+        if (started && isPlayable(x, y)) {
+            record(MoveAction.CHORD, x, y);
+            return endMove(listenerService.onChord(x, y, moveModel(MoveAction.CHORD, x, y)), changedCells);
+        }
+        return endMove(0, changedCells);
+    }
+
+    /**
+     * Отменяет последний ход: клетки, измененные ходом, получают прежний тип, счетчик и статус игры восстанавливаются.
+     * Отменить можно и проигрышный ход. Решатель заново просматривает поле, так как часть открытых клеток закрылась
+     *
+     * @return результат отмены, действителен до следующего хода. Если отменять нечего, прямоугольник изменений пуст
+     * @see UndoHistory
+     */
+    public MoveResult undo() {
+        DirtyRegion changedCells = beginMove();
+        UndoHistory.Entry entry = undoHistory == null ? null : undoHistory.undo(model, changedCells);
+        if (entry == null) {
+            result.set(0, changedCells, getGameStatus());
+            return result;
+        }
+        listenerService.restoreGame(entry.unrevealedSafeCells, entry.gameStatus);
+        if (!clockRunning && entry.gameStatus == GameStatus.IN_PROCESS) {
+            clockStartNanos = System.nanoTime();
+            clockRunning = true;
+        }
+        record(MoveAction.UNDO, entry.x, entry.y);
+        moveCount++;
+        // найденные решателем клетки остаются верными и после отмены, пересматриваются только цифры у вернувшихся клеток
+        if (solver != null && getGameStatus() == GameStatus.IN_PROCESS) {
+            solver.cellsChanged(changedCells);
+        }
+        result.set(0, changedCells, getGameStatus());
+        return result;
+    }
+
+    /**
+     * Повторяет последний отмененный ход. Новый ход после отмены делает повтор невозможным
+     *
+     * @return результат хода, действителен до следующего хода
+     */
+    public MoveResult redo() {
+        UndoHistory.Entry entry = undoHistory == null ? null : undoHistory.pollRedo();
+        if (entry == null) {
+            result.set(0, beginMove(), getGameStatus());
+            return result;
+        }
+        redoing = true;
+        try {
+            return JournalReplayer.apply(this, entry.action, entry.x, entry.y);
+        } finally {
+            redoing = false;
+        }
+    }
+
+    /**
+     * Создает снимок текущей игры. Поля копируются, поэтому снимок можно записывать в файл в другом потоке, пока
+     * игра продолжается
+     *
+     * @param difficulty - сложность, сохраняемая вместе с игрой
+     * @throws IllegalStateException для бесконечного поля, которое не сохраняется
+     */
+    public GameSnapshot snapshot(Difficulty difficulty) {
+        if (model instanceof ChunkedBoardModel) {
+            throw new IllegalStateException("Endless games cannot be saved");
+        }
+        long[] hiddenWords = null;
+        long[] visibleWords;
+        if (model instanceof PackedBoardModel) {
+            PackedBoardModel packed = (PackedBoardModel) model;
+            hiddenWords = started ? packed.copyHiddenWords() : null;
+            visibleWords = packed.copyVisibleWords();
+        } else {
+            hiddenWords = started ? GameSnapshot.pack(model, true) : null;
+            visibleWords = GameSnapshot.pack(model, false);
+        }
+        byte[] journalBytes = new byte[0];
+        if (journal != null && journal.isStarted()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                journal.write(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            journalBytes = out.toByteArray();
+        }
+        return new GameSnapshot(difficulty, width, height, mines, seed, generationMode, getGameStatus(), started,
+                listenerService.getUnrevealedSafeCells(), getElapsedMillis(), hiddenWords, visibleWords,
+                journalBytes);
+    }
+
+    /**
+     * Продолжает сохраненную игру. Решатель заново просматривает все поле, подключенный журнал заменяется
+     * сохраненным, а если журнал не был сохранен - начинается заново
+     *
+     * @param snapshot - снимок игры
+     * @throws IllegalStateException для бесконечного поля
+     */
+    public void restore(GameSnapshot snapshot) {
+        if (model instanceof ChunkedBoardModel) {
+            throw new IllegalStateException("Endless games cannot be restored");
+        }
+        newGame(snapshot.getWidth(), snapshot.getHeight(), snapshot.getMines(), snapshot.getSeed());
+        if (model instanceof PackedBoardModel) {
+            long[] hiddenWords = snapshot.getHiddenWords();
+            ((PackedBoardModel) model).setWords(width, height, hiddenWords == null ? null : hiddenWords.clone(),
+                    snapshot.getVisibleWords().clone());
+        } else {
+            if (snapshot.isStarted()) {
+                model.initHiddenBoard(width, height);
+                GameSnapshot.unpack(snapshot.getHiddenWords(), model, true);
+            }
+            GameSnapshot.unpack(snapshot.getVisibleWords(), model, false);
+        }
+        started = snapshot.isStarted();
+        generationMode = snapshot.getGenerationMode();
+        listenerService.restoreGame(snapshot.getUnrevealedSafeCells(), snapshot.getGameStatus());
+        elapsedMillis = snapshot.getElapsedMillis();
+        clockStartNanos = System.nanoTime();
+        clockRunning = started && snapshot.getGameStatus() == GameStatus.IN_PROCESS;
+        if (undoHistory != null) {
+            undoHistory.clear();
+        }
+        if (journal != null) {
+            GameJournal saved = snapshot.readJournal();
+            if (saved != null) {
+                journal.copyFrom(saved);
+            }
+        }
+        if (solver != null) {
+            solver.reset();
+        }
+        if (solver != null && started) {
+            DirtyRegion board = new DirtyRegion();
+            board.addAll(width, height);
+            solver.cellsChanged(board);
+        }
+    }
+
+    /**
+     * Возвращает решатель текущей игры, подключая его при первом вызове. Решатель, подключенный посреди игры на обычном
+     * поле, один раз просматривает все поле, на бесконечном - учитывает только последующие ходы
+     */
+    public ConstraintSolver getSolver() {
+        if (solver == null) {
+            solver = new ConstraintSolver(model);
+            if (started && !(model instanceof ChunkedBoardModel)) {
+                DirtyRegion board = new DirtyRegion();
+                board.addAll(width, height);
+                solver.cellsChanged(board);
+            }
+        }
+        return solver;
+    }
+
+    /**
+     * Возвращает расчет вероятностей мин, создавая его при первом вызове. Через него настраивается бюджет времени
+     */
+    public ProbabilityEngine getProbabilityEngine() {
+        if (probabilityEngine == null) {
+            probabilityEngine = new ProbabilityEngine(model);
+        }
+        return probabilityEngine;
+    }
+
+    /**
+     * Вероятности мин во всех закрытых клетках обычного поля. Клетки, найденные решателем, считаются известными
+     */
+    public ProbabilityMap computeProbabilities() {
+        if (model instanceof ChunkedBoardModel) {
+            throw new IllegalStateException("Endless board probabilities need a window");
+        }
+        return getProbabilityEngine().compute(mines, getUnrevealedSafeCells() + mines, getSolver(),
+                0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Вероятности мин в окне поля. На бесконечном поле учитывается только окно, а вероятность мины в неизвестной клетке
+     * равна плотности мин мира. На обычном поле ограничения собираются со всего поля, а карта строится только для окна
+     *
+     * @param fromX, @param fromY, @param toX, @param toY - окно, включая границы
+     */
+    public ProbabilityMap computeProbabilities(int fromX, int fromY, int toX, int toY) {
+        if (!(model instanceof ChunkedBoardModel)) {
+            return getProbabilityEngine().compute(mines, getUnrevealedSafeCells() + mines, getSolver(),
+                    fromX, fromY, toX, toY);
+        }
+        double density = (double) ChunkedBoardModel.MINES_PER_CHUNK
+                / (ChunkedBoardModel.CHUNK_SIZE * ChunkedBoardModel.CHUNK_SIZE);
+        return getProbabilityEngine().compute(density, getSolver(), fromX, fromY, toX, toY);
+    }
+
+    public GameStatus getGameStatus() {
+        return listenerService.getGameStatus();
+    }
+
+    public CellType getVisibleCellType(int x, int y) {
+        return model.getVisibleCellType(x, y);
+    }
+
+    public BoardModelInterface getModel() {
+        return model;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public int getUnrevealedSafeCells() {
+        return listenerService.getUnrevealedSafeCells();
+    }
+
+    /**
+     * Время игры в миллисекундах от первого клика. После конца игры не меняется
+     */
+    public long getElapsedMillis() {
+        return clockRunning ? elapsedMillis + (System.nanoTime() - clockStartNanos) / 1_000_000 : elapsedMillis;
+    }
+
+    public long getMoveCount() {
+        return moveCount;
+    }
+
+    private boolean isPlayable(int x, int y) {
+        return getGameStatus() == GameStatus.IN_PROCESS && x >= 0 && y >= 0
+                && x < model.getWidth() && y < model.getHeight();
+    }
+
+    /**
+     * Модель, через которую выполняется ход. При подключенной истории это обертка, записывающая изменения клеток
+     */
+    private BoardModelInterface moveModel(MoveAction action, int x, int y) {
+        if (deltaRecorder == null) {
+            return model;
+        }
+        undoHistory.begin(action, x, y, listenerService.getUnrevealedSafeCells(), getGameStatus());
+        return deltaRecorder;
+    }
+
+    private void record(MoveAction action, int x, int y) {
+        if (journal != null) {
+            journal.record(action, x, y);
+        }
+    }
+
+    private DirtyRegion beginMove() {
+        DirtyRegion changedCells = listenerService.getDirtyRegion();
+        changedCells.clear();
+        return changedCells;
+    }
+
+    private MoveResult endMove(int revealed, DirtyRegion changedCells) {
+        moveCount++;
+        if (undoHistory != null && undoHistory.isRecording()) {
+            undoHistory.commit(redoing);
+        }
+        if (clockRunning && getGameStatus() != GameStatus.IN_PROCESS) {
+            elapsedMillis = getElapsedMillis();
+            clockRunning = false;
+        }
+        if (DEBUG && started && !(model instanceof ChunkedBoardModel)) {
+            int count = listenerService.countUnrevealedSafeCells(model);
+            if (count != listenerService.getUnrevealedSafeCells()) {
+                throw new IllegalStateException("Unrevealed safe cells counter is "
+                        + listenerService.getUnrevealedSafeCells() + ", full scan found " + count);
+            }
+        }
+        if (solver != null && getGameStatus() == GameStatus.IN_PROCESS) {
+            solver.cellsChanged(changedCells);
+        }
+        result.set(revealed, changedCells, getGameStatus());
+        return result;
+    }
+}
@@ -0,0 +1,316 @@
+package Minesweeper.main.Engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал игры: параметры создания поля (размеры, количество мин, зерно, способ создания и первый клик) и ходы
+ * в порядке их выполнения. Журнал только дополняется, ход занимает несколько байт:
+ * индекс клетки y * columns + x в виде varint, байт действия {@link MoveAction} и время от предыдущего хода
+ * в миллисекундах в виде varint. Игра HARD занимает несколько сотен байт.
+ * <p>
+ * Журнал ведет движок, к которому он подключен {@link GameEngine#setJournal(GameJournal)}, а воспроизводит
+ * {@link JournalReplayer}
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class GameJournal {
+
+    /**
+     * Сигнатура файла журнала "MSJ1"
+     */
+    private static final int MAGIC = 0x4D534A31;
+
+    private int width;
+    private int height;
+    private int mines;
+
+    /**
+     * Ширина строки, по которой клетка переводится в индекс. Совпадает с шириной поля модели, на бесконечном поле -
+     * с шириной мира
+     */
+    private int columns;
+
+    private long seed;
+    private GenerationMode generationMode = GenerationMode.NORMAL;
+    private int firstX = -1;
+    private int firstY = -1;
+
+    private byte[] moves = new byte[64];
+    private int length;
+    private int moveCount;
+    private long lastMoveNanos;
+
+    /**
+     * Начинает запись новой игры, удаляя записанные ходы
+     *
+     * @param columns - ширина строки поля модели
+     */
+    void newGame(int width, int height, int mines, int columns, long seed) {
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        this.columns = columns;
+        this.seed = seed;
+        generationMode = GenerationMode.NORMAL;
+        firstX = -1;
+        firstY = -1;
+        length = 0;
+        moveCount = 0;
+        lastMoveNanos = System.nanoTime();
+    }
+
+    /**
+     * Записывает параметры созданного скрытого поля. Зерно может отличаться от зерна новой игры, если поле найдено
+     * генератором без угадывания или взято из пула
+     */
+    void startGame(long seed, GenerationMode generationMode, int firstX, int firstY) {
+        this.seed = seed;
+        this.generationMode = generationMode;
+        this.firstX = firstX;
+        this.firstY = firstY;
+    }
+
+    /**
+     * Дописывает ход в журнал
+     */
+    void record(MoveAction action, int x, int y) {
+        long now = System.nanoTime();
+        ensureCapacity(length + 2 * 10 + 1);
+        writeVarint((long) y * columns + x);
+        moves[length++] = (byte) action.ordinal();
+        writeVarint(TimeUnit.NANOSECONDS.toMillis(now - lastMoveNanos));
+        lastMoveNanos = now;
+        moveCount++;
+    }
+
+    /**
+     * Заменяет содержимое журнала копией другого журнала и продолжает запись после его последнего хода.
+     * Используется при продолжении сохраненной игры
+     */
+    void copyFrom(GameJournal source) {
+        width = source.width;
+        height = source.height;
+        mines = source.mines;
+        columns = source.columns;
+        seed = source.seed;
+        generationMode = source.generationMode;
+        firstX = source.firstX;
+        firstY = source.firstY;
+        moves = Arrays.copyOf(source.moves, Math.max(source.length, 64));
+        length = source.length;
+        moveCount = source.moveCount;
+        lastMoveNanos = System.nanoTime();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public GenerationMode getGenerationMode() {
+        return generationMode;
+    }
+
+    /**
+     * Координаты первого клика или -1, если скрытое поле еще не создано
+     */
+    public int getFirstX() {
+        return firstX;
+    }
+
+    public int getFirstY() {
+        return firstY;
+    }
+
+    public boolean isStarted() {
+        return firstX >= 0;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Курсор для чтения ходов с начала журнала. Чтение не создает объектов на каждый ход
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Записывает журнал в поток. Поток не закрывается
+     *
+     * @throws IOException при ошибке записи
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        writeVarint(data, width);
+        writeVarint(data, height);
+        writeVarint(data, mines);
+        writeVarint(data, columns);
+        data.writeLong(seed);
+        data.writeByte(generationMode.ordinal());
+        writeVarint(data, firstX + 1);
+        writeVarint(data, firstY + 1);
+        writeVarint(data, moveCount);
+        writeVarint(data, length);
+        data.write(moves, 0, length);
+        data.flush();
+    }
+
+    /**
+     * Читает журнал, записанный {@link GameJournal#write(OutputStream)}
+     *
+     * @throws IOException при ошибке чтения или если данные не являются журналом
+     */
+    public static GameJournal read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a game journal");
+        }
+        GameJournal journal = new GameJournal();
+        journal.width = readInt(data);
+        journal.height = readInt(data);
+        journal.mines = readInt(data);
+        journal.columns = readInt(data);
+        journal.seed = data.readLong();
+        int mode = data.readUnsignedByte();
+        if (mode >= GenerationMode.values().length) {
+            throw new IOException("Unknown generation mode: " + mode);
+        }
+        journal.generationMode = GenerationMode.values()[mode];
+        journal.firstX = readInt(data) - 1;
+        journal.firstY = readInt(data) - 1;
+        journal.moveCount = readInt(data);
+        journal.length = readInt(data);
+        if (journal.length > 0 && journal.columns <= 0) {
+            throw new IOException("Malformed journal header");
+        }
+        journal.moves = new byte[journal.length];
+        data.readFully(journal.moves);
+        return journal;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(capacity, moves.length * 2));
+        }
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            moves[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        moves[length++] = (byte) value;
+    }
+
+    private static void writeVarint(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static int readInt(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value > Integer.MAX_VALUE) {
+                    break;
+                }
+                return (int) value;
+            }
+        }
+        throw new IOException("Malformed journal header");
+    }
+
+    /**
+     * Курсор по ходам журнала. После {@link Cursor#next()}, вернувшего true, геттеры возвращают очередной ход
+     */
+    public class Cursor {
+
+        private int position;
+        private MoveAction action;
+        private int x;
+        private int y;
+        private long delayMillis;
+
+        private Cursor() {
+        }
+
+        /**
+         * Переходит к следующему ходу
+         *
+         * @return false, если ходы закончились
+         * @throws IllegalStateException если журнал поврежден
+         */
+        public boolean next() {
+            if (position >= length) {
+                return false;
+            }
+            long index = readVarint();
+            if (position >= length) {
+                throw new IllegalStateException("Truncated journal at byte " + position);
+            }
+            action = MoveAction.fromCode(moves[position++]);
+            delayMillis = readVarint();
+            x = (int) (index % columns);
+            y = (int) (index / columns);
+            return true;
+        }
+
+        public MoveAction getAction() {
+            return action;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        /**
+         * Время от предыдущего хода, для первого хода - от начала игры
+         */
+        public long getDelayMillis() {
+            return delayMillis;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; position < length && shift < Long.SIZE; shift += 7) {
+                byte b = moves[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Truncated journal at byte " + position);
+        }
+    }
+}
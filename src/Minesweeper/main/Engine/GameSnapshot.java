@@ -0,0 +1,365 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+import Minesweeper.main.Difficulty;
+import Minesweeper.main.GameStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Снимок состояния игры: скрытое и видимое поля по 4 бита на клетку, статус, сложность, время игры и журнал ходов.
+ * Снимок создается движком {@link GameEngine#snapshot(Difficulty)} копированием упакованных массивов и после этого
+ * не зависит от движка, поэтому записывается в файл в любом потоке.
+ * <p>
+ * Файл состоит из заголовка фиксированной длины, упакованных полей и журнала. Запись и чтение идут через
+ * {@link FileChannel} блоками по {@link GameSnapshot#BUFFER_BYTES} байт из прямого буфера, массивы полей копируются
+ * в буфер целиком, поэтому поле в миллионы клеток сохраняется и загружается за миллисекунды. Файл не отображается
+ * в память: отображение держит файл открытым до сборки мусора, и на Windows его нельзя заменить следующим снимком
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameEngine#restore(GameSnapshot)
+ */
+public class GameSnapshot {
+
+    /**
+     * Сигнатура файла "MSS1" и версия формата
+     */
+    private static final int MAGIC = 0x4D535331;
+    private static final int VERSION = 1;
+
+    /**
+     * Длина заголовка. Кратна 8, чтобы массивы полей в файле были выровнены
+     */
+    private static final int HEADER_BYTES = 72;
+
+    private static final int BITS_PER_CELL = 4;
+    private static final int CELLS_PER_WORD = Long.SIZE / BITS_PER_CELL;
+
+    /**
+     * Размер буфера, через который файл пишется и читается
+     */
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final Difficulty difficulty;
+    private final int width;
+    private final int height;
+    private final int mines;
+    private final long seed;
+    private final GenerationMode generationMode;
+    private final GameStatus gameStatus;
+    private final boolean started;
+    private final int unrevealedSafeCells;
+    private final long elapsedMillis;
+
+    /**
+     * Упакованные поля в формате {@link PackedBoardModel#copyHiddenWords()}. Скрытого поля нет до первого клика
+     */
+    private final long[] hiddenWords;
+    private final long[] visibleWords;
+
+    /**
+     * Журнал игры {@link GameJournal#write} или пустой массив
+     */
+    private final byte[] journal;
+
+    GameSnapshot(Difficulty difficulty, int width, int height, int mines, long seed, GenerationMode generationMode,
+                 GameStatus gameStatus, boolean started, int unrevealedSafeCells, long elapsedMillis,
+                 long[] hiddenWords, long[] visibleWords, byte[] journal) {
+        this.difficulty = difficulty;
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        this.seed = seed;
+        this.generationMode = generationMode;
+        this.gameStatus = gameStatus;
+        this.started = started;
+        this.unrevealedSafeCells = unrevealedSafeCells;
+        this.elapsedMillis = elapsedMillis;
+        this.hiddenWords = hiddenWords;
+        this.visibleWords = visibleWords;
+        this.journal = journal;
+    }
+
+    /**
+     * Записывает снимок в файл. Снимок сначала пишется во временный файл рядом, который затем атомарно заменяет
+     * целевой, поэтому при сбое во время записи остается предыдущий снимок
+     *
+     * @param file - файл снимка
+     * @throws IOException при ошибке записи
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int hiddenLength = hiddenWords == null ? 0 : hiddenWords.length;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(difficulty.ordinal());
+            buffer.putInt(width);
+            buffer.putInt(height);
+            buffer.putInt(mines);
+            buffer.putLong(seed);
+            buffer.putInt(generationMode.ordinal());
+            buffer.putInt(gameStatus.ordinal());
+            buffer.putInt(started ? 1 : 0);
+            buffer.putInt(unrevealedSafeCells);
+            buffer.putLong(elapsedMillis);
+            buffer.putInt(hiddenLength);
+            buffer.putInt(visibleWords.length);
+            buffer.putInt(journal.length);
+            buffer.position(HEADER_BYTES);
+            if (hiddenWords != null) {
+                putWords(channel, buffer, hiddenWords);
+            }
+            putWords(channel, buffer, visibleWords);
+            putBytes(channel, buffer, journal);
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Читает снимок, записанный {@link GameSnapshot#write(Path)}
+     *
+     * @throws IOException при ошибке чтения или если файл не является снимком игры
+     */
+    public static GameSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a saved game: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.limit(HEADER_BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a saved game: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported saved game version: " + version);
+            }
+            Difficulty difficulty = valueOf(Difficulty.values(), buffer.getInt());
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int mines = buffer.getInt();
+            long seed = buffer.getLong();
+            GenerationMode generationMode = valueOf(GenerationMode.values(), buffer.getInt());
+            GameStatus gameStatus = valueOf(GameStatus.values(), buffer.getInt());
+            boolean started = buffer.getInt() != 0;
+            int unrevealedSafeCells = buffer.getInt();
+            long elapsedMillis = buffer.getLong();
+            int hiddenLength = buffer.getInt();
+            int visibleLength = buffer.getInt();
+            int journalLength = buffer.getInt();
+            long words = width <= 0 || height <= 0 ? -1 : (long) PackedBoardModel.wordsPerRow(width) * height;
+            if (visibleLength != words || hiddenLength != (started ? words : 0) || journalLength < 0
+                    || size != HEADER_BYTES + 8L * (hiddenLength + visibleLength) + journalLength) {
+                throw new IOException("Corrupted saved game: " + file);
+            }
+            long[] hiddenWords = started ? getWords(channel, buffer, hiddenLength) : null;
+            long[] visibleWords = getWords(channel, buffer, visibleLength);
+            byte[] journal = new byte[journalLength];
+            readFully(channel, ByteBuffer.wrap(journal));
+            return new GameSnapshot(difficulty, width, height, mines, seed, generationMode, gameStatus, started,
+                    unrevealedSafeCells, elapsedMillis, hiddenWords, visibleWords, journal);
+        }
+    }
+
+    /**
+     * Упаковывает поле модели, которая не хранит его в упакованном виде
+     *
+     * @param hidden - true для скрытого поля, false для видимого
+     */
+    static long[] pack(BoardModelInterface model, boolean hidden) {
+        int width = model.getWidth();
+        int wordsPerRow = PackedBoardModel.wordsPerRow(width);
+        long[] words = new long[Math.multiplyExact(wordsPerRow, model.getHeight())];
+        for (int y = 0; y < model.getHeight(); y++) {
+            for (int x = 0; x < width; x++) {
+                CellType cellType = hidden ? model.getHiddenCellType(x, y) : model.getVisibleCellType(x, y);
+                words[y * wordsPerRow + x / CELLS_PER_WORD] |= (long) cellType.ordinal()
+                        << (x % CELLS_PER_WORD) * BITS_PER_CELL;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Распаковывает поле в модель, которая не хранит его в упакованном виде
+     *
+     * @param hidden - true для скрытого поля, false для видимого
+     */
+    static void unpack(long[] words, BoardModelInterface model, boolean hidden) {
+        int width = model.getWidth();
+        int wordsPerRow = PackedBoardModel.wordsPerRow(width);
+        for (int y = 0; y < model.getHeight(); y++) {
+            for (int x = 0; x < width; x++) {
+                CellType cellType = CellType.fromOrdinal((int) (words[y * wordsPerRow + x / CELLS_PER_WORD]
+                        >>> (x % CELLS_PER_WORD) * BITS_PER_CELL) & 0xF);
+                if (hidden) {
+                    model.setHiddenCellType(x, y, cellType);
+                } else {
+                    model.setVisibleCellType(x, y, cellType);
+                }
+            }
+        }
+    }
+
+    /**
+     * Журнал игры из снимка или null, если журнал не сохранен
+     */
+    GameJournal readJournal() {
+        if (journal.length == 0) {
+            return null;
+        }
+        try {
+            return GameJournal.read(new ByteArrayInputStream(journal));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Дописывает массив в буфер, сбрасывая заполненный буфер в файл
+     */
+    private static void putWords(FileChannel channel, ByteBuffer buffer, long[] words) throws IOException {
+        int offset = 0;
+        while (offset < words.length) {
+            if (buffer.remaining() < Long.BYTES) {
+                flush(channel, buffer);
+            }
+            int count = Math.min(words.length - offset, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().put(words, offset, count);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            offset += count;
+        }
+    }
+
+    private static void putBytes(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            int count = Math.min(bytes.length - offset, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+
+    /**
+     * Записывает накопленное в буфере и освобождает его
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Читает массив из файла блоками через буфер
+     */
+    private static long[] getWords(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        long[] words = new long[length];
+        int offset = 0;
+        while (offset < length) {
+            int count = Math.min(length - offset, buffer.capacity() / Long.BYTES);
+            buffer.clear();
+            buffer.limit(count * Long.BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            buffer.asLongBuffer().get(words, offset, count);
+            offset += count;
+        }
+        return words;
+    }
+
+    /**
+     * Заполняет буфер до предела
+     *
+     * @throws EOFException если файл закончился раньше
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Corrupted saved game: unexpected end of file");
+            }
+        }
+    }
+
+    private static <T> T valueOf(T[] values, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Corrupted saved game: unknown value " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public GenerationMode getGenerationMode() {
+        return generationMode;
+    }
+
+    public GameStatus getGameStatus() {
+        return gameStatus;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public int getUnrevealedSafeCells() {
+        return unrevealedSafeCells;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    long[] getHiddenWords() {
+        return hiddenWords;
+    }
+
+    long[] getVisibleWords() {
+        return visibleWords;
+    }
+}
@@ -0,0 +1,33 @@
+package Minesweeper.main.Engine;
+
+/**
+ * Способ, которым было создано скрытое поле игры. Вместе с зерном, размерами поля и первым кликом определяет,
+ * как воспроизвести поле
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameEngine#getGenerationMode()
+ */
+public enum GenerationMode {
+
+    /**
+     * Мины расставлены {@link Minesweeper.main.BoardMVC.BoardService#putMinesAtBoard} по зерну игры
+     */
+    NORMAL,
+
+    /**
+     * Поле без угадывания. Зерно игры - зерно найденного проходимого поля, поэтому поле расставляется так же, как
+     * {@link GenerationMode#NORMAL}
+     */
+    NO_GUESS,
+
+    /**
+     * Поле взято из пула {@link LayoutPool} и приспособлено к первому клику
+     */
+    POOLED,
+
+    /**
+     * Бесконечное поле {@link Minesweeper.main.BoardMVC.ChunkedBoardModel}
+     */
+    ENDLESS
+}
@@ -0,0 +1,85 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardMVC.ChunkedBoardModel;
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.GameStatus;
+
+/**
+ * Воспроизведение игр из журнала {@link GameJournal} на движке без графического интерфейса. Ходы применяются
+ * без задержек, поэтому за секунду воспроизводятся тысячи игр. Воспроизведение в реальном времени на экране
+ * выполняет {@link Minesweeper.main.BoardMVC.ReplayPlayer}
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public final class JournalReplayer {
+
+    private JournalReplayer() {
+    }
+
+    /**
+     * Создает движок с моделью, подходящей для записанной игры: бесконечной для игры на бесконечном поле,
+     * упакованной для остальных. К движку обычного поля подключается история, чтобы воспроизводились отмены ходов
+     */
+    public static GameEngine createEngine(GameJournal journal) {
+        if (journal.getGenerationMode() == GenerationMode.ENDLESS) {
+            return new GameEngine(new ChunkedBoardModel());
+        }
+        GameEngine engine = new GameEngine(new PackedBoardModel());
+        engine.setUndoHistory(new UndoHistory());
+        return engine;
+    }
+
+    /**
+     * Воспроизводит игру на новом движке
+     *
+     * @return движок в состоянии после последнего хода журнала
+     */
+    public static GameEngine replay(GameJournal journal) {
+        GameEngine engine = createEngine(journal);
+        replay(journal, engine);
+        return engine;
+    }
+
+    /**
+     * Воспроизводит все ходы журнала на движке. Текущая игра движка заменяется записанной
+     *
+     * @return статус игры после последнего хода
+     */
+    public static GameStatus replay(GameJournal journal, GameEngine engine) {
+        begin(journal, engine);
+        GameJournal.Cursor cursor = journal.cursor();
+        while (cursor.next()) {
+            apply(engine, cursor.getAction(), cursor.getX(), cursor.getY());
+        }
+        return engine.getGameStatus();
+    }
+
+    /**
+     * Начинает на движке записанную игру без ходов
+     */
+    public static void begin(GameJournal journal, GameEngine engine) {
+        engine.replayGame(journal.getWidth(), journal.getHeight(), journal.getMines(), journal.getSeed(),
+                journal.getGenerationMode());
+    }
+
+    /**
+     * Выполняет на движке один ход. Отмена хода выполняется, только если к движку подключена история
+     *
+     * @return результат хода, действителен до следующего хода
+     */
+    public static MoveResult apply(GameEngine engine, MoveAction action, int x, int y) {
+        switch (action) {
+            case REVEAL:
+                return engine.reveal(x, y);
+            case FLAG:
+                return engine.flag(x, y);
+            case CHORD:
+                return engine.chord(x, y);
+            case UNDO:
+                return engine.undo();
+            default:
+                throw new IllegalArgumentException("Unknown move action: " + action);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardMVC.BoardService;
+import Minesweeper.main.BoardMVC.MinePlacer;
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул заранее созданных скрытых полей. Пока игрок еще не кликнул, фоновый поток создает поля для выбранной сложности:
+ * расставляет мины без безопасной зоны и считает цифры. При первом клике готовое поле приспосабливается к нему:
+ * мины из зоны 3x3 вокруг клика переносятся в случайные свободные клетки вне зоны, и цифры пересчитываются только
+ * вокруг перенесенных мин. Расположение мин остается равномерным среди полей без мин в зоне.
+ * <p>
+ * Поле полностью определяется параметрами, зерном и первым кликом, поэтому игру можно воспроизвести
+ * {@link LayoutPool#createLayout}. Размер пула задается параметром -Dminesweeper.layoutPool (по умолчанию 2)
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameEngine#setLayoutPool(LayoutPool)
+ */
+public class LayoutPool {
+
+    public static final int DEFAULT_SIZE = Integer.getInteger("minesweeper.layoutPool", 2);
+
+    private final int size;
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<Layout> ready = new ConcurrentLinkedQueue<>();
+    private final SplittableRandom seeds = new SplittableRandom();
+
+    /**
+     * Параметры полей, которые сейчас создаются, и их поколение. Смена параметров увеличивает поколение,
+     * и поля, создаваемые для старых параметров, отбрасываются
+     */
+    private volatile int width;
+    private volatile int height;
+    private volatile int mines;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public LayoutPool() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size - количество готовых полей
+     */
+    public LayoutPool(int size) {
+        this.size = size;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "layout-pool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Выбирает параметры полей. Если они изменились, готовые поля отбрасываются. Пул дополняется в фоне
+     */
+    public synchronized void configure(int width, int height, int mines) {
+        if (this.width != width || this.height != height || this.mines != mines) {
+            this.width = width;
+            this.height = height;
+            this.mines = mines;
+            generation.incrementAndGet();
+            pending.set(0);
+            ready.clear();
+        }
+        refill();
+    }
+
+    /**
+     * Забирает готовое поле с заданными параметрами и запускает создание нового
+     *
+     * @return поле или null, если готового поля нет
+     */
+    public synchronized Layout poll(int width, int height, int mines) {
+        Layout layout = null;
+        if (this.width == width && this.height == height && this.mines == mines) {
+            layout = ready.poll();
+        }
+        refill();
+        return layout;
+    }
+
+    public int getReady() {
+        return ready.size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void refill() {
+        int currentGeneration = generation.get();
+        while (width > 0 && ready.size() + pending.get() < size) {
+            pending.incrementAndGet();
+            long seed = seeds.nextLong();
+            int layoutWidth = width;
+            int layoutHeight = height;
+            int layoutMines = mines;
+            executor.execute(() -> {
+                if (generation.get() != currentGeneration) {
+                    return;
+                }
+                Layout layout = new Layout(layoutWidth, layoutHeight, layoutMines, seed);
+                synchronized (this) {
+                    if (generation.get() == currentGeneration) {
+                        ready.add(layout);
+                        pending.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Создает поле так же, как пул, и приспосабливает его к первому клику. Позволяет воспроизвести игру по зерну
+     *
+     * @return поле или null, если мин слишком много, чтобы освободить первый клик
+     */
+    public static PackedBoardModel createLayout(int width, int height, int mines, long seed, int firstX, int firstY) {
+        Layout layout = new Layout(width, height, mines, seed);
+        return layout.adaptTo(firstX, firstY) ? layout.board : null;
+    }
+
+    /**
+     * Готовое поле: скрытое поле с минами и цифрами без безопасной зоны
+     */
+    public static class Layout {
+
+        private final int width;
+        private final int height;
+        private final int mines;
+        private final long seed;
+        private final PackedBoardModel board = new PackedBoardModel();
+
+        Layout(int width, int height, int mines, long seed) {
+            this.width = width;
+            this.height = height;
+            this.mines = mines;
+            this.seed = seed;
+            board.initHiddenBoard(width, height);
+            for (int index : new MinePlacer().placeMines(width, height, mines, seed,
+                    MinePlacer.NO_FIRST_CLICK, MinePlacer.NO_FIRST_CLICK)) {
+                board.setHiddenCellType(index % width, index / width, CellType.MINE);
+            }
+            new BoardService().defineOtherCells(board);
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Переносит мины из безопасной зоны первого клика. Зона, как и в {@link MinePlacer}, - квадрат 3x3,
+         * а если мин для него слишком много - только клетка клика. Случайность определяется зерном поля и кликом
+         *
+         * @return false, если мин столько, что свободной клетки для клика нет
+         */
+        boolean adaptTo(int firstX, int firstY) {
+            long cells = (long) width * height;
+            int radius = MinePlacer.DEFAULT_SAFE_RADIUS;
+            if (mines > cells - zoneSize(firstX, firstY, radius)) {
+                radius = 0;
+                if (mines > cells - 1) {
+                    return false;
+                }
+            }
+            int fromX = Math.max(firstX - radius, 0);
+            int toX = Math.min(firstX + radius, width - 1);
+            int fromY = Math.max(firstY - radius, 0);
+            int toY = Math.min(firstY + radius, height - 1);
+            long click = ((long) firstY << 32) | firstX;
+            SplittableRandom random = new SplittableRandom(seed ^ click * 0x9E3779B97F4A7C15L);
+            for (int y = fromY; y <= toY; y++) {
+                for (int x = fromX; x <= toX; x++) {
+                    if (board.getHiddenCellType(x, y) != CellType.MINE) {
+                        continue;
+                    }
+                    int targetX;
+                    int targetY;
+                    do {
+                        targetX = random.nextInt(width);
+                        targetY = random.nextInt(height);
+                    } while (board.getHiddenCellType(targetX, targetY) == CellType.MINE
+                            || (targetX >= fromX && targetX <= toX && targetY >= fromY && targetY <= toY));
+                    board.setHiddenCellType(x, y, CellType.EMPTY);
+                    board.setHiddenCellType(targetX, targetY, CellType.MINE);
+                    recountAround(x, y);
+                    recountAround(targetX, targetY);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Заново считает цифры клетки и ее соседей
+         */
+        private void recountAround(int x, int y) {
+            for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, height - 1); j++) {
+                for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+                    if (board.getHiddenCellType(i, j) == CellType.MINE) {
+                        continue;
+                    }
+                    int count = 0;
+                    for (int b = Math.max(j - 1, 0); b <= Math.min(j + 1, height - 1); b++) {
+                        for (int a = Math.max(i - 1, 0); a <= Math.min(i + 1, width - 1); a++) {
+                            if (board.getHiddenCellType(a, b) == CellType.MINE) {
+                                count++;
+                            }
+                        }
+                    }
+                    board.setHiddenCellType(i, j, CellType.fromOrdinal(count));
+                }
+            }
+        }
+
+        private int zoneSize(int x, int y, int radius) {
+            return (Math.min(x + radius, width - 1) - Math.max(x - radius, 0) + 1)
+                    * (Math.min(y + radius, height - 1) - Math.max(y - radius, 0) + 1);
+        }
+
+        /**
+         * Переносит поле в модель: для упакованной модели - без копирования, для остальных - поклеточно
+         */
+        void copyTo(BoardModelInterface model) {
+            if (model instanceof PackedBoardModel) {
+                ((PackedBoardModel) model).takeHiddenBoard(board);
+                return;
+            }
+            model.initHiddenBoard(width, height);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    model.setHiddenCellType(x, y, board.getHiddenCellType(x, y));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package Minesweeper.main.Engine;
+
+/**
+ * Действие хода игрока, записываемое в журнал {@link GameJournal} одним байтом - порядковым номером
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public enum MoveAction {
+
+    /**
+     * Открытие клетки {@link GameEngine#reveal(int, int)}
+     */
+    REVEAL,
+
+    /**
+     * Переключение отметки клетки {@link GameEngine#flag(int, int)}
+     */
+    FLAG,
+
+    /**
+     * Открытие клеток вокруг цифры {@link GameEngine#chord(int, int)}
+     */
+    CHORD,
+
+    /**
+     * Отмена последнего хода {@link GameEngine#undo()}. Клетка хода не используется
+     */
+    UNDO;
+
+    private static final MoveAction[] ACTIONS = values();
+
+    /**
+     * Действие по его коду в журнале
+     *
+     * @throws IllegalArgumentException если кода нет
+     */
+    public static MoveAction fromCode(int code) {
+        if (code < 0 || code >= ACTIONS.length) {
+            throw new IllegalArgumentException("Unknown move action: " + code);
+        }
+        return ACTIONS[code];
+    }
+}
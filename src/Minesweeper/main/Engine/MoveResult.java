@@ -0,0 +1,43 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardMVC.DirtyRegion;
+import Minesweeper.main.GameStatus;
+
+/**
+ * Результат хода: количество открытых клеток, прямоугольник измененных клеток и статус игры после хода.
+ * Движок возвращает один и тот же объект на каждый ход, поэтому результат действителен до следующего хода
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameEngine
+ */
+public class MoveResult {
+
+    private int revealedCells;
+    private DirtyRegion changedCells;
+    private GameStatus gameStatus;
+
+    void set(int revealedCells, DirtyRegion changedCells, GameStatus gameStatus) {
+        this.revealedCells = revealedCells;
+        this.changedCells = changedCells;
+        this.gameStatus = gameStatus;
+    }
+
+    /**
+     * Количество безопасных клеток, открытых ходом
+     */
+    public int getRevealedCells() {
+        return revealedCells;
+    }
+
+    /**
+     * Прямоугольник клеток видимого поля, измененных ходом. Пуст, если ход ничего не изменил
+     */
+    public DirtyRegion getChangedCells() {
+        return changedCells;
+    }
+
+    public GameStatus getGameStatus() {
+        return gameStatus;
+    }
+}
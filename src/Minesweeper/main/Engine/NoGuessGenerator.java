@@ -0,0 +1,182 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.GameStatus;
+import Minesweeper.main.Solver.ConstraintSolver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Генератор полей, которые можно пройти без угадывания. Кандидаты - расположения мин с зернами, выведенными из
+ * исходного зерна и номера кандидата. Кандидат принимается, если решатель {@link ConstraintSolver}, начав с первого
+ * клика, открывает все безопасные клетки, ни разу не сделав хода наугад.
+ * <p>
+ * Кандидаты проверяются пачками по числу потоков пула, из пачки берется прошедший кандидат с наименьшим номером.
+ * Поэтому результат зависит только от исходного зерна, а не от числа потоков.
+ * <p>
+ * Проверка кандидата растет вместе с полем, поэтому поиск ограничен и числом кандидатов, и временем. Время
+ * проверяется и внутри прохода решателем: прерванный кандидат не принимается и не отвергается, а кандидаты после
+ * него в пачке не рассматриваются, чтобы результат не зависел от того, какие потоки успели. На больших полях
+ * генератор сдается по времени и возвращает обычное поле
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameEngine#setNoGuess(boolean)
+ */
+public class NoGuessGenerator {
+
+    /**
+     * Количество кандидатов, после которого генератор сдается и возвращает обычное поле
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 10_000;
+
+    /**
+     * Время поиска, после которого генератор сдается, наносекунд. Задается в миллисекундах параметром
+     * -Dminesweeper.noGuessMillis. Не учитывает создание поля и первый клик одного кандидата
+     */
+    public static final long DEFAULT_TIME_BUDGET = Long.getLong("minesweeper.noGuessMillis", 3000) * 1_000_000L;
+
+    private final ForkJoinPool pool;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long timeBudget = DEFAULT_TIME_BUDGET;
+
+    /**
+     * Генератор, использующий общий пул fork-join
+     */
+    public NoGuessGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public NoGuessGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @param timeBudget - время поиска, наносекунд
+     */
+    public void setTimeBudget(long timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Ищет поле без угадывания
+     *
+     * @param width, @param height, @param mines - параметры поля
+     * @param firstX, @param firstY - координаты первого клика
+     * @param seed   - исходное зерно
+     * @return зерно найденного поля и статистика поиска
+     */
+    public Result generate(int width, int height, int mines, int firstX, int firstY, long seed) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudget;
+        int batch = Math.max(1, pool.getParallelism());
+        int evaluated = 0;
+        for (int next = 0; next < maxAttempts; next += batch) {
+            int from = next;
+            int to = Math.min(from + batch, maxAttempts);
+            Verdict[] verdicts = pool.submit(() -> IntStream.range(from, to).parallel()
+                    .mapToObj(candidate -> check(width, height, mines, firstX, firstY,
+                            candidateSeed(seed, candidate), deadline))
+                    .toArray(Verdict[]::new)).join();
+            for (int candidate = from; candidate < to; candidate++) {
+                Verdict verdict = verdicts[candidate - from];
+                if (verdict == Verdict.TIMED_OUT) {
+                    return new Result(seed, false, evaluated, evaluated, System.nanoTime() - start);
+                }
+                evaluated = candidate + 1;
+                if (verdict == Verdict.SOLVED) {
+                    return new Result(candidateSeed(seed, candidate), true, candidate + 1, to,
+                            System.nanoTime() - start);
+                }
+            }
+            if (System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        return new Result(seed, false, evaluated, evaluated, System.nanoTime() - start);
+    }
+
+    /**
+     * Проходит поле решателем без угадывания
+     *
+     * @param deadline - момент System.nanoTime(), после которого проход прерывается
+     */
+    static Verdict check(int width, int height, int mines, int firstX, int firstY, long seed, long deadline) {
+        GameEngine engine = new GameEngine(new PackedBoardModel());
+        ConstraintSolver solver = engine.getSolver();
+        engine.newGame(width, height, mines, seed);
+        engine.reveal(firstX, firstY);
+        while (engine.getGameStatus() == GameStatus.IN_PROCESS) {
+            if (System.nanoTime() > deadline) {
+                return Verdict.TIMED_OUT;
+            }
+            long cell = solver.nextSafeCell();
+            if (cell == ConstraintSolver.NONE) {
+                return Verdict.STUCK;
+            }
+            engine.reveal(ConstraintSolver.keyX(cell), ConstraintSolver.keyY(cell));
+        }
+        return engine.getGameStatus() == GameStatus.WIN ? Verdict.SOLVED : Verdict.STUCK;
+    }
+
+    /**
+     * Итог проверки кандидата: все безопасные клетки открыты, решателю не хватило ходов без угадывания
+     * или проход прерван по времени
+     */
+    enum Verdict {
+        SOLVED, STUCK, TIMED_OUT
+    }
+
+    /**
+     * Зерно кандидата. Нулевой кандидат - само исходное зерно, поэтому проходимое поле не меняется
+     */
+    static long candidateSeed(long seed, int candidate) {
+        return candidate == 0 ? seed : seed ^ (candidate * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Результат поиска: зерно поля, найдено ли поле без угадывания, номер принятого кандидата, считая с единицы,
+     * число проверенных кандидатов и время поиска в наносекундах
+     */
+    public static class Result {
+
+        private final long seed;
+        private final boolean found;
+        private final int attempts;
+        private final int evaluated;
+        private final long nanos;
+
+        Result(long seed, boolean found, int attempts, int evaluated, long nanos) {
+            this.seed = seed;
+            this.found = found;
+            this.attempts = attempts;
+            this.evaluated = evaluated;
+            this.nanos = nanos;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public boolean isFound() {
+            return found;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public int getEvaluated() {
+            return evaluated;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardMVC.BoardService;
+import Minesweeper.main.BoardMVC.ConcurrentBoardModel;
+import Minesweeper.main.CellType;
+import Minesweeper.main.GameStatus;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Совместная игра: одно поле, на котором одновременно открывают клетки и ставят флаги несколько игроков,
+ * каждый в своем потоке. Методы потокобезопасны и не берут блокировок.
+ * <p>
+ * Клетка открывается сравнением с обменом в {@link ConcurrentBoardModel}, поэтому при пересечении заливок
+ * каждую клетку открывает и учитывает ровно один поток. Открытые клетки считаются в {@link LongAdder}, который
+ * потоки увеличивают без борьбы за одну ячейку памяти. Выигрыш фиксирует поток, увидевший, что открыты все
+ * безопасные клетки, проигрыш - поток, открывший мину. Статус меняется один раз. Ходы, начатые до конца игры,
+ * могут завершиться после него, новые ходы после конца игры не выполняются
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class SharedGame {
+
+    private final ConcurrentBoardModel model = new ConcurrentBoardModel();
+    private final int width;
+    private final int height;
+    private final long safeCells;
+    private final LongAdder revealedCells = new LongAdder();
+    private final AtomicReference<GameStatus> gameStatus = new AtomicReference<>(GameStatus.IN_PROCESS);
+
+    /**
+     * Создает поле. Зона вокруг стартовой клетки остается без мин, как при первом клике обычной игры
+     *
+     * @param seed             - зерно расположения мин
+     * @param firstX, @param firstY - стартовая клетка
+     */
+    public SharedGame(int width, int height, int mines, long seed, int firstX, int firstY) {
+        this.width = width;
+        this.height = height;
+        this.safeCells = (long) width * height - mines;
+        model.initVisibleBoard(width, height);
+        model.initHiddenBoard(width, height);
+        BoardService service = new BoardService();
+        service.putMinesAtBoard(model, mines, firstX, firstY, seed);
+        service.defineOtherCells(model);
+    }
+
+    /**
+     * Открывает клетку, а пустую - вместе с областью пустых клеток. Клетка под флагом не открывается,
+     * заливка открывает и клетки под флагами
+     *
+     * @return количество клеток, открытых этим вызовом
+     */
+    public int reveal(int x, int y) {
+        if (gameStatus.get() != GameStatus.IN_PROCESS || !contains(x, y)) {
+            return 0;
+        }
+        CellType hidden = model.getHiddenCellType(x, y);
+        if (hidden == CellType.MINE) {
+            if (model.compareAndSetVisibleCellType(x, y, CellType.CLOSED, CellType.MINE_BLOW)
+                    || model.compareAndSetVisibleCellType(x, y, CellType.QUESTION, CellType.MINE_BLOW)) {
+                gameStatus.compareAndSet(GameStatus.IN_PROCESS, GameStatus.LOSE);
+            }
+            return 0;
+        }
+        CellType visible = model.getVisibleCellType(x, y);
+        if (visible == CellType.FLAG || !open(x, y, hidden)) {
+            return 0;
+        }
+        int revealed = 1;
+        if (hidden == CellType.EMPTY) {
+            revealed += flood(x, y);
+        }
+        revealedCells.add(revealed);
+        if (revealedCells.sum() == safeCells) {
+            gameStatus.compareAndSet(GameStatus.IN_PROCESS, GameStatus.WIN);
+        }
+        return revealed;
+    }
+
+    /**
+     * Переключает отметку клетки: закрытая - флаг - знак вопроса - закрытая
+     */
+    public void flag(int x, int y) {
+        if (gameStatus.get() != GameStatus.IN_PROCESS || !contains(x, y)) {
+            return;
+        }
+        while (true) {
+            CellType visible = model.getVisibleCellType(x, y);
+            CellType next;
+            switch (visible) {
+                case CLOSED:
+                    next = CellType.FLAG;
+                    break;
+                case FLAG:
+                    next = CellType.QUESTION;
+                    break;
+                case QUESTION:
+                    next = CellType.CLOSED;
+                    break;
+                default:
+                    return;
+            }
+            if (model.compareAndSetVisibleCellType(x, y, visible, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Открывает закрытую клетку, если ее еще не открыл другой поток
+     *
+     * @return true, если клетку открыл этот вызов
+     */
+    private boolean open(int x, int y, CellType hidden) {
+        while (true) {
+            CellType visible = model.getVisibleCellType(x, y);
+            if (!visible.isClosed()) {
+                return false;
+            }
+            if (model.compareAndSetVisibleCellType(x, y, visible, hidden)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Заливка от открытой пустой клетки. Стек клеток свой у каждого вызова, отметкой о посещении служит
+     * видимое поле: клетку, открытую другим потоком, этот поток не открывает и дальше от нее не идет
+     *
+     * @return количество клеток, открытых заливкой, без стартовой
+     */
+    private int flood(int x, int y) {
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = y * width + x;
+        int revealed = 0;
+        while (size > 0) {
+            int cell = stack[--size];
+            int cellX = cell % width;
+            int cellY = cell / width;
+            for (int j = Math.max(cellY - 1, 0); j <= Math.min(cellY + 1, height - 1); j++) {
+                for (int i = Math.max(cellX - 1, 0); i <= Math.min(cellX + 1, width - 1); i++) {
+                    CellType hidden = model.getHiddenCellType(i, j);
+                    if (hidden == CellType.MINE || !open(i, j, hidden)) {
+                        continue;
+                    }
+                    revealed++;
+                    if (hidden == CellType.EMPTY) {
+                        if (size == stack.length) {
+                            stack = Arrays.copyOf(stack, size * 2);
+                        }
+                        stack[size++] = j * width + i;
+                    }
+                }
+            }
+        }
+        return revealed;
+    }
+
+    private boolean contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public GameStatus getGameStatus() {
+        return gameStatus.get();
+    }
+
+    /**
+     * Количество открытых безопасных клеток. Пока идут ходы, значение приблизительное
+     */
+    public long getRevealedCells() {
+        return revealedCells.sum();
+    }
+
+    public long getSafeCells() {
+        return safeCells;
+    }
+
+    public ConcurrentBoardModel getModel() {
+        return model;
+    }
+}
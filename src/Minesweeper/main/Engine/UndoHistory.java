@@ -0,0 +1,227 @@
+package Minesweeper.main.Engine;
+
+import Minesweeper.main.BoardMVC.DirtyRegion;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+import Minesweeper.main.GameStatus;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * История ходов для отмены и повтора. Запись хода хранит только клетки видимого поля, измененные ходом: индекс клетки
+ * и ее прежний тип, без копий поля. Клетки записываются одним varint на клетку: разность индекса с предыдущей клеткой
+ * в зигзаг-кодировке, сдвинутая на 4 бита, и прежний тип в младших 4 битах. Соседние клетки заливки отличаются
+ * на 1 или на ширину поля, поэтому даже большая заливка занимает 1-3 байта на клетку.
+ * <p>
+ * Объем истории ограничен {@link UndoHistory#DEFAULT_LIMIT}, при превышении отбрасываются самые старые записи.
+ * Последняя запись сохраняется всегда
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameEngine#undo()
+ */
+public class UndoHistory {
+
+    /**
+     * Наибольший объем истории в байтах. Задается параметром -Dminesweeper.undoLimit
+     */
+    public static final long DEFAULT_LIMIT = Long.getLong("minesweeper.undoLimit", 16L << 20);
+
+    /**
+     * Оценка объема записи без измененных клеток
+     */
+    private static final int ENTRY_OVERHEAD = 48;
+
+    private final long limit;
+    private final ArrayDeque<Entry> undoEntries = new ArrayDeque<>();
+    private final ArrayDeque<Entry> redoEntries = new ArrayDeque<>();
+    private long bytes;
+
+    /**
+     * Запись текущего хода
+     */
+    private Entry current;
+    private byte[] buffer = new byte[256];
+    private int length;
+    private int changeCount;
+    private int lastIndex;
+
+    public UndoHistory() {
+        this(DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param limit - наибольший объем истории в байтах
+     */
+    public UndoHistory(long limit) {
+        this.limit = limit;
+    }
+
+    public void clear() {
+        undoEntries.clear();
+        redoEntries.clear();
+        bytes = 0;
+        current = null;
+    }
+
+    public boolean canUndo() {
+        return !undoEntries.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoEntries.isEmpty();
+    }
+
+    /**
+     * Объем истории в байтах
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getUndoCount() {
+        return undoEntries.size();
+    }
+
+    /**
+     * Начинает запись хода
+     *
+     * @param unrevealedSafeCells - счетчик неоткрытых клеток до хода
+     * @param gameStatus          - статус игры до хода
+     */
+    void begin(MoveAction action, int x, int y, int unrevealedSafeCells, GameStatus gameStatus) {
+        current = new Entry(action, x, y, unrevealedSafeCells, gameStatus);
+        length = 0;
+        changeCount = 0;
+        lastIndex = 0;
+    }
+
+    boolean isRecording() {
+        return current != null;
+    }
+
+    /**
+     * Записывает прежний тип клетки, измененной текущим ходом
+     */
+    void record(int index, CellType previous) {
+        int delta = index - lastIndex;
+        lastIndex = index;
+        long value = ((long) ((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL) << 4 | previous.ordinal();
+        if (length + 10 > buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+        changeCount++;
+    }
+
+    /**
+     * Заканчивает запись хода. Ход, который ничего не изменил, не записывается. Новый ход, кроме повтора
+     * отмененного, очищает список повторов
+     *
+     * @param redo - ход является повтором отмененного хода
+     */
+    void commit(boolean redo) {
+        Entry entry = current;
+        current = null;
+        if (entry == null || changeCount == 0) {
+            return;
+        }
+        entry.changes = Arrays.copyOf(buffer, length);
+        entry.changeCount = changeCount;
+        if (!redo) {
+            redoEntries.clear();
+        }
+        undoEntries.addLast(entry);
+        bytes += entry.size();
+        while (bytes > limit && undoEntries.size() > 1) {
+            bytes -= undoEntries.removeFirst().size();
+        }
+        if (buffer.length > 4096 && length < buffer.length / 4) {
+            buffer = new byte[256];
+        }
+    }
+
+    /**
+     * Возвращает клетки последнего хода в прежнее состояние и переносит ход в список повторов
+     *
+     * @param model        - модель, видимое поле которой восстанавливается
+     * @param changedCells - получает прямоугольник восстановленных клеток
+     * @return запись отмененного хода или null, если отменять нечего
+     */
+    Entry undo(BoardModelInterface model, DirtyRegion changedCells) {
+        Entry entry = undoEntries.pollLast();
+        if (entry == null) {
+            return null;
+        }
+        bytes -= entry.size();
+        int[] indices = new int[entry.changeCount];
+        byte[] types = new byte[entry.changeCount];
+        int position = 0;
+        int index = 0;
+        for (int i = 0; i < entry.changeCount; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = entry.changes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int zigzag = (int) (value >>> 4);
+            index += (zigzag >>> 1) ^ -(zigzag & 1);
+            indices[i] = index;
+            types[i] = (byte) (value & 0xF);
+        }
+        int width = model.getWidth();
+        // клетка может измениться за ход дважды, поэтому прежние типы восстанавливаются с конца
+        for (int i = entry.changeCount - 1; i >= 0; i--) {
+            int x = indices[i] % width;
+            int y = indices[i] / width;
+            model.setVisibleCellType(x, y, CellType.fromOrdinal(types[i]));
+            changedCells.add(x, y);
+        }
+        entry.changes = null;
+        redoEntries.addLast(entry);
+        return entry;
+    }
+
+    /**
+     * Забирает последний отмененный ход для повтора
+     *
+     * @return запись хода или null, если повторять нечего
+     */
+    Entry pollRedo() {
+        return redoEntries.pollLast();
+    }
+
+    /**
+     * Запись хода: действие, клетка, счетчик и статус игры до хода и измененные клетки
+     */
+    static class Entry {
+
+        final MoveAction action;
+        final int x;
+        final int y;
+        final int unrevealedSafeCells;
+        final GameStatus gameStatus;
+        private byte[] changes;
+        private int changeCount;
+
+        Entry(MoveAction action, int x, int y, int unrevealedSafeCells, GameStatus gameStatus) {
+            this.action = action;
+            this.x = x;
+            this.y = y;
+            this.unrevealedSafeCells = unrevealedSafeCells;
+            this.gameStatus = gameStatus;
+        }
+
+        private long size() {
+            return ENTRY_OVERHEAD + (changes == null ? 0 : changes.length);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package Minesweeper.main.Metrics;
+
+import Minesweeper.main.Difficulty;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сбор показателей горячего пути игры: задержек клика, хода, перерисовки и отрисовки кадра, количества клеток,
+ * открытых кликом и заливкой, и времени создания поля по сложностям.
+ * <p>
+ * Значения пишутся в гистограммы {@link LatencyHistogram} одной из полос, полоса выбирается по номеру потока.
+ * Полос не меньше удвоенного числа процессоров, поэтому блокировка полосы почти никогда не занята, а память
+ * не растет с числом потоков, даже если у каждого соединения сервера свой поток. Гистограмма полосы создается
+ * при первой записи показателя, после этого запись не создает объектов.
+ * <p>
+ * Сбор включен по умолчанию и выключается параметром -Dminesweeper.metrics=false или атрибутом Enabled
+ * в JMX. Выключенный сбор стоит одного чтения volatile-поля на замер. Параметр -Dminesweeper.metrics.dump
+ * задает период в секундах, с которым таблица показателей пишется в журнал
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameMetricsMXBean
+ */
+public final class GameMetrics {
+
+    public static final String OBJECT_NAME = "Minesweeper:type=GameMetrics";
+
+    /**
+     * Период записи показателей в журнал в секундах, 0 - не писать
+     */
+    public static final int DUMP_PERIOD = Integer.getInteger("minesweeper.metrics.dump", 0);
+
+    private static final Metric[] METRICS = Metric.values();
+    private static final Stripe[] STRIPES = new Stripe[Integer.highestOneBit(
+            Runtime.getRuntime().availableProcessors() * 4 - 1)];
+
+    static {
+        for (int i = 0; i < STRIPES.length; i++) {
+            STRIPES[i] = new Stripe();
+        }
+    }
+
+    private static volatile boolean enabled = Boolean.parseBoolean(System.getProperty("minesweeper.metrics", "true"));
+
+    private static boolean registered;
+    private static ScheduledExecutorService dumper;
+
+    private GameMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        GameMetrics.enabled = enabled;
+    }
+
+    /**
+     * Начало замера задержки
+     *
+     * @return текущее время в наносекундах или 0, если сбор выключен
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Записывает задержку от начала замера {@link GameMetrics#start()} до текущего момента
+     */
+    public static void recordSince(Metric metric, long startNanos) {
+        if (startNanos != 0 && enabled) {
+            record(metric, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Записывает значение в гистограмму полосы текущего потока
+     */
+    @SuppressWarnings("deprecation")
+    public static void record(Metric metric, long value) {
+        if (!enabled) {
+            return;
+        }
+        Stripe stripe = STRIPES[(int) Thread.currentThread().getId() & (STRIPES.length - 1)];
+        synchronized (stripe) {
+            stripe.histogram(metric).record(value);
+        }
+    }
+
+    /**
+     * Показатель времени создания поля заданных размеров: стандартная сложность с теми же параметрами,
+     * иначе пользовательская
+     *
+     * @param endless - поле бесконечное
+     */
+    public static Metric generation(int width, int height, int mines, boolean endless) {
+        if (endless) {
+            return Metric.GENERATION_ENDLESS;
+        }
+        if (matches(Difficulty.EASY, width, height, mines)) {
+            return Metric.GENERATION_EASY;
+        } else if (matches(Difficulty.NORMAL, width, height, mines)) {
+            return Metric.GENERATION_NORMAL;
+        } else if (matches(Difficulty.HARD, width, height, mines)) {
+            return Metric.GENERATION_HARD;
+        }
+        return Metric.GENERATION_CUSTOM;
+    }
+
+    private static boolean matches(Difficulty difficulty, int width, int height, int mines) {
+        return difficulty.width == width && difficulty.height == height && difficulty.mines == mines;
+    }
+
+    /**
+     * Объединяет гистограммы показателя всех полос
+     *
+     * @return новая гистограмма, не связанная с записью
+     */
+    public static LatencyHistogram snapshot(Metric metric) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (Stripe stripe : STRIPES) {
+            synchronized (stripe) {
+                if (stripe.histograms[metric.ordinal()] != null) {
+                    histogram.add(stripe.histograms[metric.ordinal()]);
+                }
+            }
+        }
+        return histogram;
+    }
+
+    public static HistogramSummary summary(Metric metric) {
+        return new HistogramSummary(metric.getUnit(), snapshot(metric));
+    }
+
+    /**
+     * Обнуляет все гистограммы
+     */
+    public static void reset() {
+        for (Stripe stripe : STRIPES) {
+            synchronized (stripe) {
+                for (LatencyHistogram histogram : stripe.histograms) {
+                    if (histogram != null) {
+                        histogram.reset();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Таблица показателей, в которые записано хотя бы одно значение. Задержки выводятся в микросекундах
+     */
+    public static String dump() {
+        StringBuilder builder = new StringBuilder(String.format("%-20s %10s %10s %10s %10s %10s %10s%n",
+                "metric", "count", "mean", "p50", "p99", "p99.9", "max"));
+        for (Metric metric : METRICS) {
+            LatencyHistogram histogram = snapshot(metric);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            double scale = metric.isLatency() ? 1e3 : 1;
+            builder.append(String.format("%-20s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %s%n", metric,
+                    histogram.getTotalCount(), histogram.getMean() / scale,
+                    histogram.getValueAtPercentile(50) / scale, histogram.getValueAtPercentile(99) / scale,
+                    histogram.getValueAtPercentile(99.9) / scale, histogram.getMax() / scale,
+                    metric.isLatency() ? "us" : "cells"));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Регистрирует {@link GameMetricsMXBean} на платформенном MBean-сервере и, если задан период
+     * {@link GameMetrics#DUMP_PERIOD}, запускает периодическую запись показателей в журнал.
+     * Повторный вызов ничего не делает
+     */
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new GameMetricsBean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.getLogger(GameMetrics.class.getName()).log(System.Logger.Level.WARNING,
+                    "Game metrics MBean is not registered", e);
+        }
+        if (DUMP_PERIOD > 0) {
+            dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-dump");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            dumper.scheduleAtFixedRate(GameMetrics::log, DUMP_PERIOD, DUMP_PERIOD, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void log() {
+        if (enabled) {
+            System.getLogger(GameMetrics.class.getName()).log(System.Logger.Level.INFO,
+                    "Game metrics:" + System.lineSeparator() + dump());
+        }
+    }
+
+    /**
+     * Гистограммы одной полосы, создаются при первой записи показателя
+     */
+    private static class Stripe {
+
+        private final LatencyHistogram[] histograms = new LatencyHistogram[METRICS.length];
+
+        private LatencyHistogram histogram(Metric metric) {
+            LatencyHistogram histogram = histograms[metric.ordinal()];
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                histograms[metric.ordinal()] = histogram;
+            }
+            return histogram;
+        }
+    }
+}
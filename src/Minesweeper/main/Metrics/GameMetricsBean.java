@@ -0,0 +1,64 @@
+package Minesweeper.main.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Реализация {@link GameMetricsMXBean}, которая передает вызовы {@link GameMetrics}
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+class GameMetricsBean implements GameMetricsMXBean {
+
+    private static final Metric[] GENERATION = {Metric.GENERATION_EASY, Metric.GENERATION_NORMAL,
+            Metric.GENERATION_HARD, Metric.GENERATION_CUSTOM, Metric.GENERATION_ENDLESS};
+
+    public boolean isEnabled() {
+        return GameMetrics.isEnabled();
+    }
+
+    public void setEnabled(boolean enabled) {
+        GameMetrics.setEnabled(enabled);
+    }
+
+    public HistogramSummary getClickLatency() {
+        return GameMetrics.summary(Metric.CLICK_LATENCY);
+    }
+
+    public HistogramSummary getMoveLatency() {
+        return GameMetrics.summary(Metric.MOVE_LATENCY);
+    }
+
+    public HistogramSummary getRepaintLatency() {
+        return GameMetrics.summary(Metric.REPAINT_LATENCY);
+    }
+
+    public HistogramSummary getPaintLatency() {
+        return GameMetrics.summary(Metric.PAINT_LATENCY);
+    }
+
+    public HistogramSummary getCellsPerClick() {
+        return GameMetrics.summary(Metric.CELLS_PER_CLICK);
+    }
+
+    public HistogramSummary getFloodFillSize() {
+        return GameMetrics.summary(Metric.FLOOD_FILL_SIZE);
+    }
+
+    public Map<String, HistogramSummary> getGenerationTime() {
+        Map<String, HistogramSummary> summaries = new LinkedHashMap<>();
+        for (Metric metric : GENERATION) {
+            summaries.put(metric.name().substring("GENERATION_".length()), GameMetrics.summary(metric));
+        }
+        return summaries;
+    }
+
+    public void reset() {
+        GameMetrics.reset();
+    }
+
+    public String dump() {
+        return GameMetrics.dump();
+    }
+}
@@ -0,0 +1,45 @@
+package Minesweeper.main.Metrics;
+
+import java.util.Map;
+
+/**
+ * JMX-интерфейс показателей игры, регистрируется под именем {@link GameMetrics#OBJECT_NAME}.
+ * Атрибуты читаются в jconsole или VisualVM, запись атрибута Enabled включает и выключает сбор показателей
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameMetrics
+ */
+public interface GameMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    HistogramSummary getClickLatency();
+
+    HistogramSummary getMoveLatency();
+
+    HistogramSummary getRepaintLatency();
+
+    HistogramSummary getPaintLatency();
+
+    HistogramSummary getCellsPerClick();
+
+    HistogramSummary getFloodFillSize();
+
+    /**
+     * Время создания скрытого поля по сложностям, ключ - имя сложности
+     */
+    Map<String, HistogramSummary> getGenerationTime();
+
+    /**
+     * Обнуляет все гистограммы
+     */
+    void reset();
+
+    /**
+     * Таблица всех показателей в текстовом виде
+     */
+    String dump();
+}
@@ -0,0 +1,66 @@
+package Minesweeper.main.Metrics;
+
+/**
+ * Сводка гистограммы для публикации через JMX: количество значений, среднее, перцентили и максимум.
+ * Через {@link GameMetricsMXBean} передается как CompositeData, поэтому читается любой JMX-консолью
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class HistogramSummary {
+
+    private final String unit;
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public HistogramSummary(String unit, LatencyHistogram histogram) {
+        this.unit = unit;
+        this.count = histogram.getTotalCount();
+        this.mean = histogram.getMean();
+        this.p50 = histogram.getValueAtPercentile(50);
+        this.p90 = histogram.getValueAtPercentile(90);
+        this.p99 = histogram.getValueAtPercentile(99);
+        this.p999 = histogram.getValueAtPercentile(99.9);
+        this.max = histogram.getMax();
+    }
+
+    /**
+     * Единица измерения значений: "ns" или "cells"
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,123 @@
+package Minesweeper.main.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Гистограмма задержек с логарифмическими корзинами, как в HdrHistogram. Каждая степень двойки разбита
+ * на {@link LatencyHistogram#SUB_BUCKETS} корзин, поэтому относительная погрешность перцентилей не превышает 1/64.
+ * Запись значения не создает объектов и стоит нескольких арифметических операций.
+ * <p>
+ * Класс не потокобезопасен: каждый поток ведет свою гистограмму, а затем они объединяются
+ * {@link LatencyHistogram#add(LatencyHistogram)}
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Количество корзин, достаточное для любого неотрицательного long
+     */
+    private static final int BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Записывает значение. Отрицательные значения считаются нулем
+     *
+     * @param value - значение, обычно задержка в наносекундах
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[bucketIndex(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Добавляет к гистограмме значения другой гистограммы
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Возвращает значение, не меньше которого не более (100 - percentile)% записанных значений
+     *
+     * @param percentile - перцентиль от 0 до 100
+     * @return нижняя граница корзины, содержащей перцентиль, но не больше максимума
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(Math.max(bucketValue(i), getMin()), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Значения меньше 2 * SUB_BUCKETS хранятся точно, большие - с отбрасыванием младших битов так,
+     * чтобы у значения осталось SUB_BUCKET_BITS + 1 значащих битов
+     */
+    private static int bucketIndex(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    private static long bucketValue(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        return (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+    }
+}
@@ -0,0 +1,61 @@
+package Minesweeper.main.Metrics;
+
+/**
+ * Показатели горячего пути игры, которые собирает {@link GameMetrics}. Задержки записываются в наносекундах,
+ * размеры - в клетках
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public enum Metric {
+
+    /**
+     * Обработка отпускания кнопки мыши видом: ход, автоматическое открытие и обновление заднего буфера
+     */
+    CLICK_LATENCY(true),
+    /**
+     * Ход движка, вызванный кликом
+     */
+    MOVE_LATENCY(true),
+    /**
+     * Перерисовка измененных клеток в задний буфер
+     */
+    REPAINT_LATENCY(true),
+    /**
+     * Отрисовка кадра панели поля
+     */
+    PAINT_LATENCY(true),
+    /**
+     * Клетки, открытые одним кликом
+     */
+    CELLS_PER_CLICK(false),
+    /**
+     * Клетки, открытые одной заливкой пустой области
+     */
+    FLOOD_FILL_SIZE(false),
+    /**
+     * Создание скрытого поля по сложностям
+     */
+    GENERATION_EASY(true),
+    GENERATION_NORMAL(true),
+    GENERATION_HARD(true),
+    GENERATION_CUSTOM(true),
+    GENERATION_ENDLESS(true);
+
+    private final boolean latency;
+
+    Metric(boolean latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @return true для задержки в наносекундах, false для количества клеток
+     */
+    public boolean isLatency() {
+        return latency;
+    }
+
+    public String getUnit() {
+        return latency ? "ns" : "cells";
+    }
+}
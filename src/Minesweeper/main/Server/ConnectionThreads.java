@@ -0,0 +1,59 @@
+package Minesweeper.main.Server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фабрика потоков соединений сервера. На Java 21 и новее каждое соединение получает виртуальный поток, поэтому
+ * тысячи соединений не занимают тысячи потоков операционной системы. Проект собирается под Java 17, где виртуальных
+ * потоков нет, поэтому фабрика виртуальных потоков берется через отражение, а при ее отсутствии создаются обычные
+ * потоки-демоны
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+final class ConnectionThreads {
+
+    private ConnectionThreads() {
+    }
+
+    /**
+     * @param prefix - префикс имен потоков, к нему добавляется номер потока
+     * @return фабрика виртуальных потоков, если они поддерживаются, иначе фабрика потоков-демонов
+     */
+    static ThreadFactory create(String prefix) {
+        ThreadFactory virtual = virtualThreads(prefix);
+        if (virtual != null) {
+            return virtual;
+        }
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Вызывает Thread.ofVirtual().name(prefix, 0).factory(). Методы берутся у открытого интерфейса Thread.Builder,
+     * так как класс построителя закрыт
+     *
+     * @return фабрика виртуальных потоков или null, если они не поддерживаются
+     */
+    static ThreadFactory virtualThreads(String prefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    static boolean isVirtual() {
+        return virtualThreads("probe") != null;
+    }
+}
@@ -0,0 +1,155 @@
+package Minesweeper.main.Server;
+
+import Minesweeper.main.CellType;
+import Minesweeper.main.Difficulty;
+import Minesweeper.main.Engine.GameEngine;
+import Minesweeper.main.Engine.MoveResult;
+
+import java.util.Locale;
+
+/**
+ * Строчный протокол сервера. Команда и ответ занимают по одной строке, слова разделяются пробелами:
+ * <pre>
+ * NEW ширина высота мины [зерно]  -> OK id
+ * REVEAL id x y                   -> OK статус открыто-клеток неоткрытых-безопасных
+ * FLAG id x y                     -> OK статус открыто-клеток неоткрытых-безопасных
+ * CHORD id x y                    -> OK статус открыто-клеток неоткрытых-безопасных
+ * STATE id                        -> OK статус ширина высота клетки
+ * CLOSE id                        -> OK
+ * </pre>
+ * Клетки видимого поля передаются строкой по одному символу на клетку, строка за строкой: цифра для открытой
+ * клетки, '#' для закрытой, 'F' для флага, '?' для знака вопроса, '*' для мины, 'X' для взорванной мины
+ * и 'W' для ошибочного флага. На ошибку сервер отвечает "ERR сообщение"
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameServer
+ */
+public class GameProtocol {
+
+    /**
+     * Наибольшее число клеток поля сессии. Задается параметром -Dminesweeper.server.maxCells
+     */
+    public static final int MAX_CELLS = Integer.getInteger("minesweeper.server.maxCells", 1 << 20);
+
+    /**
+     * Символы клеток по порядковым номерам {@link CellType}
+     */
+    private static final String CELL_CHARS = "012345678#*XF?W";
+
+    private final SessionRegistry sessions;
+
+    public GameProtocol(SessionRegistry sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Выполняет команду
+     *
+     * @param line - строка команды
+     * @return строка ответа
+     */
+    public String handle(String line) {
+        String[] words = line.trim().split(" +");
+        try {
+            switch (words[0].toUpperCase(Locale.ROOT)) {
+                case "NEW":
+                    return newGame(words);
+                case "REVEAL":
+                case "FLAG":
+                case "CHORD":
+                    return move(words);
+                case "STATE":
+                    return state(words);
+                case "CLOSE":
+                    checkArguments(words, 2);
+                    return sessions.remove(Long.parseLong(words[1])) ? "OK" : "ERR Unknown session: " + words[1];
+                default:
+                    return "ERR Unknown command: " + words[0];
+            }
+        } catch (NumberFormatException e) {
+            return "ERR Not a number: " + e.getMessage();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private String newGame(String[] words) {
+        if (words.length != 4 && words.length != 5) {
+            throw new IllegalArgumentException("Usage: NEW width height mines [seed]");
+        }
+        int width = Integer.parseInt(words[1]);
+        int height = Integer.parseInt(words[2]);
+        int mines = Integer.parseInt(words[3]);
+        Difficulty.checkCustom(width, height, mines);
+        if ((long) width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("Board must have at most " + MAX_CELLS + " cells");
+        }
+        GameSession session = sessions.create();
+        synchronized (session) {
+            if (words.length == 5) {
+                session.getEngine().newGame(width, height, mines, Long.parseLong(words[4]));
+            } else {
+                session.getEngine().newGame(width, height, mines);
+            }
+        }
+        return "OK " + session.getId();
+    }
+
+    private String move(String[] words) {
+        checkArguments(words, 4);
+        GameSession session = session(words[1]);
+        int x = Integer.parseInt(words[2]);
+        int y = Integer.parseInt(words[3]);
+        synchronized (session) {
+            GameEngine engine = session.getEngine();
+            MoveResult result;
+            switch (words[0].toUpperCase(Locale.ROOT)) {
+                case "REVEAL":
+                    result = engine.reveal(x, y);
+                    break;
+                case "FLAG":
+                    result = engine.flag(x, y);
+                    break;
+                default:
+                    result = engine.chord(x, y);
+            }
+            return "OK " + result.getGameStatus() + " " + result.getRevealedCells() + " "
+                    + engine.getUnrevealedSafeCells();
+        }
+    }
+
+    private String state(String[] words) {
+        checkArguments(words, 2);
+        GameSession session = session(words[1]);
+        synchronized (session) {
+            GameEngine engine = session.getEngine();
+            int width = engine.getWidth();
+            int height = engine.getHeight();
+            StringBuilder builder = new StringBuilder(width * height + 32);
+            builder.append("OK ").append(engine.getGameStatus()).append(' ').append(width).append(' ')
+                    .append(height).append(' ');
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    builder.append(CELL_CHARS.charAt(engine.getVisibleCellType(x, y).ordinal()));
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    private GameSession session(String id) {
+        GameSession session = sessions.get(Long.parseLong(id));
+        if (session == null) {
+            throw new IllegalArgumentException("Unknown session: " + id);
+        }
+        return session;
+    }
+
+    private static void checkArguments(String[] words, int count) {
+        if (words.length != count) {
+            throw new IllegalArgumentException(words[0].toUpperCase(Locale.ROOT) + " expects " + (count - 1)
+                    + " arguments");
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package Minesweeper.main.Server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Локальный TCP-сервер игр без графического интерфейса. Каждое соединение обслуживается своим потоком, который
+ * читает команды {@link GameProtocol} и пишет ответы. На Java 21 и новее это виртуальные потоки
+ * {@link ConnectionThreads}, поэтому сервер держит тысячи соединений. Сессии игр хранятся в {@link SessionRegistry}
+ * и не привязаны к соединению: клиент может вести несколько игр или продолжить игру после переподключения.
+ * Запуск: java Minesweeper.main.Server.GameServer [порт]
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class GameServer implements AutoCloseable {
+
+    /**
+     * Порт сервера по умолчанию. Задается параметром -Dminesweeper.server.port
+     */
+    public static final int DEFAULT_PORT = Integer.getInteger("minesweeper.server.port", 7777);
+
+    /**
+     * Наибольшая длина строки команды. Более длинная строка закрывает соединение
+     */
+    private static final int MAX_LINE = 256;
+
+    private final ServerSocket serverSocket;
+    private final SessionRegistry sessions;
+    private final GameProtocol protocol;
+    private final ThreadFactory threads = ConnectionThreads.create("connection-");
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    /**
+     * Открывает порт на локальном адресе
+     *
+     * @param port     - порт, 0 - любой свободный
+     * @param sessions - реестр сессий
+     * @throws IOException если порт не удалось открыть
+     */
+    public GameServer(int port, SessionRegistry sessions) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.sessions = sessions;
+        this.protocol = new GameProtocol(sessions);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(port, new SessionRegistry());
+        System.out.printf("Minesweeper server on port %d, %s threads%n", server.getPort(),
+                ConnectionThreads.isVirtual() ? "virtual" : "platform");
+        server.serve();
+    }
+
+    /**
+     * Запускает прием соединений в отдельном потоке
+     *
+     * @return этот сервер
+     */
+    public GameServer start() {
+        Thread acceptor = new Thread(this::serve, "server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     * Принимает соединения в текущем потоке, пока сервер не закрыт
+     */
+    public void serve() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) {
+                    System.getLogger(GameServer.class.getName()).log(System.Logger.Level.WARNING,
+                            "Failed to accept a connection", e);
+                }
+                continue;
+            }
+            connections.add(socket);
+            threads.newThread(() -> serve(socket)).start();
+        }
+    }
+
+    /**
+     * Обслуживает соединение: команда за командой, пока клиент не закроет соединение или не пришлет QUIT
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                     StandardCharsets.US_ASCII));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                     StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            StringBuilder buffer = new StringBuilder(MAX_LINE + 2);
+            String line;
+            while ((line = readLine(reader, buffer)) != null && !line.trim().equalsIgnoreCase("QUIT")) {
+                writer.write(protocol.handle(line));
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // клиент разорвал соединение
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Читает строку команды, оканчивающуюся \n или \r\n. В отличие от {@link BufferedReader#readLine()} прекращает
+     * чтение, как только строка длиннее {@link GameServer#MAX_LINE}, поэтому клиент без перевода строки не заполнит
+     * память сервера
+     *
+     * @param buffer - буфер строки, переиспользуется между вызовами
+     * @return строка без перевода строки или null, если соединение закрыто или строка слишком длинная
+     */
+    private static String readLine(Reader reader, StringBuilder buffer) throws IOException {
+        buffer.setLength(0);
+        int c;
+        while ((c = reader.read()) != '\n') {
+            if (c < 0) {
+                return buffer.length() == 0 ? null : buffer.toString();
+            }
+            if (buffer.length() > MAX_LINE) {
+                return null;
+            }
+            buffer.append((char) c);
+        }
+        if (buffer.length() > 0 && buffer.charAt(buffer.length() - 1) == '\r') {
+            buffer.setLength(buffer.length() - 1);
+        }
+        return buffer.length() > MAX_LINE ? null : buffer.toString();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public SessionRegistry getSessions() {
+        return sessions;
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Закрывает порт и все открытые соединения. Реестр сессий не закрывается
+     */
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package Minesweeper.main.Server;
+
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.Engine.GameEngine;
+
+/**
+ * Сессия сервера: собственный движок с упакованной моделью и время последнего обращения. Все состояние игры
+ * принадлежит движку сессии, поэтому сессии не влияют друг на друга. Ходы одной сессии выполняются под ее
+ * монитором, так как к сессии могут обращаться несколько соединений
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see SessionRegistry
+ */
+public class GameSession {
+
+    private final long id;
+    private final GameEngine engine = new GameEngine(new PackedBoardModel());
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    GameSession(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Движок сессии. Обращаться к нему нужно под монитором сессии
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+}
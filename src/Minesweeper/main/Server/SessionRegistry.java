@@ -0,0 +1,125 @@
+package Minesweeper.main.Server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Реестр сессий сервера. Сессии, к которым не обращались дольше времени простоя, удаляются фоновым потоком,
+ * поэтому брошенные клиентами игры не копятся в памяти. Число одновременных сессий ограничено
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see GameSession
+ */
+public class SessionRegistry implements AutoCloseable {
+
+    /**
+     * Время простоя сессии в секундах. Задается параметром -Dminesweeper.server.idleSeconds
+     */
+    public static final long DEFAULT_IDLE_SECONDS = Long.getLong("minesweeper.server.idleSeconds", 300);
+
+    /**
+     * Наибольшее число сессий. Задается параметром -Dminesweeper.server.maxSessions
+     */
+    public static final int DEFAULT_MAX_SESSIONS = Integer.getInteger("minesweeper.server.maxSessions", 100_000);
+
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final long idleNanos;
+    private final int maxSessions;
+    private final ScheduledExecutorService evictor;
+
+    public SessionRegistry() {
+        this(DEFAULT_IDLE_SECONDS, DEFAULT_MAX_SESSIONS);
+    }
+
+    /**
+     * @param idleSeconds - время простоя, после которого сессия удаляется
+     * @param maxSessions - наибольшее число сессий
+     */
+    public SessionRegistry(long idleSeconds, int maxSessions) {
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        this.maxSessions = maxSessions;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-evictor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        long period = Math.max(1, idleSeconds / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Создает сессию
+     *
+     * @throws IllegalStateException если число сессий достигло предела
+     */
+    public GameSession create() {
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many sessions: " + maxSessions);
+        }
+        GameSession session = new GameSession(ids.incrementAndGet());
+        sessions.put(session.getId(), session);
+        created.increment();
+        return session;
+    }
+
+    /**
+     * Возвращает сессию и отмечает обращение к ней
+     *
+     * @return сессия или null, если ее нет или она удалена за простой
+     */
+    public GameSession get(long id) {
+        GameSession session = sessions.get(id);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    public boolean remove(long id) {
+        return sessions.remove(id) != null;
+    }
+
+    /**
+     * Удаляет сессии, к которым не обращались дольше времени простоя
+     *
+     * @return количество удаленных сессий
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (GameSession session : sessions.values()) {
+            if (now - session.getLastAccessNanos() > idleNanos && sessions.remove(session.getId(), session)) {
+                count++;
+            }
+        }
+        evicted.add(count);
+        return count;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    public void close() {
+        evictor.shutdownNow();
+        sessions.clear();
+    }
+}
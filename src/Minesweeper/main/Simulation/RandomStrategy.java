@@ -0,0 +1,51 @@
+package Minesweeper.main.Simulation;
+
+import Minesweeper.main.CellType;
+import Minesweeper.main.Engine.GameEngine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Стратегия, открывающая случайную закрытую клетку. Нижняя граница для сравнения стратегий
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class RandomStrategy implements Strategy {
+
+    /**
+     * Буфер индексов закрытых клеток, переиспользуется между ходами
+     */
+    private int[] closedCells = new int[0];
+
+    public void makeMove(GameEngine engine, SplittableRandom random) {
+        int index = randomClosedCell(engine, random);
+        engine.reveal(index % engine.getWidth(), index / engine.getWidth());
+    }
+
+    /**
+     * Выбирает случайную закрытую клетку без флага
+     *
+     * @return индекс клетки y * width + x
+     */
+    int randomClosedCell(GameEngine engine, SplittableRandom random) {
+        int width = engine.getWidth();
+        int height = engine.getHeight();
+        if (closedCells.length < width * height) {
+            closedCells = new int[width * height];
+        }
+        int size = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                CellType cellType = engine.getVisibleCellType(x, y);
+                if ((cellType == CellType.CLOSED || cellType == CellType.QUESTION)) {
+                    closedCells[size++] = y * width + x;
+                }
+            }
+        }
+        if (size == 0) {
+            throw new IllegalStateException("No closed cells left in a game in progress");
+        }
+        return closedCells[random.nextInt(size)];
+    }
+}
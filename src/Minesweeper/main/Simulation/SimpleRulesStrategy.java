@@ -0,0 +1,59 @@
+package Minesweeper.main.Simulation;
+
+import Minesweeper.main.CellType;
+import Minesweeper.main.Engine.GameEngine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Стратегия, применяющая два правила к каждой открытой цифре отдельно:
+ * если вокруг цифры стоит столько же флагов, остальные закрытые соседи безопасны и открываются разом;
+ * если закрытых соседей вместе с флагами столько же, сколько мин, все они - мины и отмечаются флагами.
+ * Если ни одно правило не применимо, открывается случайная закрытая клетка
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class SimpleRulesStrategy extends RandomStrategy {
+
+    public void makeMove(GameEngine engine, SplittableRandom random) {
+        int width = engine.getWidth();
+        int height = engine.getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int number = engine.getVisibleCellType(x, y).ordinal();
+                if (number == 0 || number > CellType.EIGHT.ordinal()) {
+                    continue;
+                }
+                int flags = 0;
+                int closed = 0;
+                int closedX = 0;
+                int closedY = 0;
+                for (int j = Math.max(0, y - 1); j <= Math.min(height - 1, y + 1); j++) {
+                    for (int i = Math.max(0, x - 1); i <= Math.min(width - 1, x + 1); i++) {
+                        CellType neighbor = engine.getVisibleCellType(i, j);
+                        if (neighbor == CellType.FLAG) {
+                            flags++;
+                        } else if (neighbor == CellType.CLOSED) {
+                            closed++;
+                            closedX = i;
+                            closedY = j;
+                        }
+                    }
+                }
+                if (closed == 0) {
+                    continue;
+                }
+                if (flags == number) {
+                    engine.chord(x, y);
+                    return;
+                }
+                if (flags + closed == number) {
+                    engine.flag(closedX, closedY);
+                    return;
+                }
+            }
+        }
+        super.makeMove(engine, random);
+    }
+}
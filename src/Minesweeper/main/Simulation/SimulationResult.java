@@ -0,0 +1,61 @@
+package Minesweeper.main.Simulation;
+
+import Minesweeper.main.Metrics.LatencyHistogram;
+
+/**
+ * Итоги серии игр: количество игр, побед и ходов и гистограмма задержек ходов в наносекундах.
+ * Количества зависят только от зерна серии, задержки - от машины
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see SimulationRunner
+ */
+public class SimulationResult {
+
+    private long games;
+    private long wins;
+    private long moves;
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    void recordGame(boolean won) {
+        games++;
+        if (won) {
+            wins++;
+        }
+    }
+
+    void recordMove(long nanos) {
+        moves++;
+        moveLatency.record(nanos);
+    }
+
+    /**
+     * Добавляет итоги другой части серии
+     */
+    void add(SimulationResult other) {
+        games += other.games;
+        wins += other.wins;
+        moves += other.moves;
+        moveLatency.add(other.moveLatency);
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public LatencyHistogram getMoveLatency() {
+        return moveLatency;
+    }
+}
@@ -0,0 +1,173 @@
+package Minesweeper.main.Simulation;
+
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.Difficulty;
+import Minesweeper.main.Engine.GameEngine;
+import Minesweeper.main.GameStatus;
+import Minesweeper.main.Metrics.LatencyHistogram;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Симулятор: играет серии игр ботами {@link Strategy} на движке {@link GameEngine} и распределяет игры по всем ядрам
+ * через {@link ForkJoinPool}. Зерно каждой игры вычисляется из зерна серии и номера игры, поэтому количество побед
+ * и ходов не зависит от числа потоков и совпадает при повторном запуске с тем же зерном.
+ * <p>
+ * Запуск: java Minesweeper.main.Simulation.SimulationRunner [игр] [зерно] [сложности через запятую] [стратегии через запятую]
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class SimulationRunner {
+
+    /**
+     * Количество игр, которые поток играет без дальнейшего деления серии
+     */
+    private static final int GAMES_PER_TASK = 64;
+
+    private final ForkJoinPool pool;
+
+    public SimulationRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism - количество потоков
+     */
+    public SimulationRunner(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Играет серию игр
+     *
+     * @param difficulty - сложность: размеры поля и количество мин
+     * @param strategy   - стратегия бота
+     * @param games      - количество игр
+     * @param seed       - зерно серии
+     */
+    public SimulationResult run(Difficulty difficulty, StrategyType strategy, int games, long seed) {
+        if (difficulty == Difficulty.ENDLESS) {
+            throw new IllegalArgumentException("Endless games never end and cannot be simulated");
+        }
+        return pool.invoke(new GameBatch(difficulty.width, difficulty.height, difficulty.mines, strategy, seed,
+                0, games));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Зерно игры с заданным номером: финализатор SplitMix64 от зерна серии и номера
+     */
+    static long gameSeed(long seed, long game) {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Часть серии: игры с номерами [from, to). Делится пополам, пока не станет меньше GAMES_PER_TASK игр
+     */
+    private static class GameBatch extends RecursiveTask<SimulationResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int width;
+        private final int height;
+        private final int mines;
+        private final StrategyType strategyType;
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        GameBatch(int width, int height, int mines, StrategyType strategyType, long seed, int from, int to) {
+            this.width = width;
+            this.height = height;
+            this.mines = mines;
+            this.strategyType = strategyType;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationResult compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                GameBatch left = new GameBatch(width, height, mines, strategyType, seed, from, middle);
+                left.fork();
+                SimulationResult result = new GameBatch(width, height, mines, strategyType, seed, middle, to).compute();
+                result.add(left.join());
+                return result;
+            }
+            SimulationResult result = new SimulationResult();
+            GameEngine engine = new GameEngine(new PackedBoardModel());
+            Strategy strategy = strategyType.create();
+            long maxMoves = 3L * width * height;
+            for (int game = from; game < to; game++) {
+                long gameSeed = gameSeed(seed, game);
+                SplittableRandom random = new SplittableRandom(gameSeed);
+                engine.newGame(width, height, mines, gameSeed);
+                strategy.startGame(engine);
+                long moves = 0;
+                while (engine.getGameStatus() == GameStatus.IN_PROCESS) {
+                    if (++moves > maxMoves) {
+                        throw new IllegalStateException(strategyType + " made no progress in game " + game);
+                    }
+                    long start = System.nanoTime();
+                    strategy.makeMove(engine, random);
+                    result.recordMove(System.nanoTime() - start);
+                }
+                result.recordGame(engine.getGameStatus() == GameStatus.WIN);
+            }
+            return result;
+        }
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        String[] difficulties = args.length > 2 ? args[2].split(",") : new String[]{"EASY", "NORMAL", "HARD"};
+        String[] strategies = args.length > 3 ? args[3].split(",") : names(StrategyType.values());
+
+        SimulationRunner runner = new SimulationRunner();
+        System.out.printf("games=%d seed=%d threads=%d%n", games, seed, runner.getParallelism());
+        System.out.printf("%-8s %-13s %8s %8s %10s %12s %9s %9s %9s %9s%n", "board", "strategy", "wins", "win %",
+                "games/s", "moves/s", "p50 us", "p99 us", "p99.9 us", "max us");
+        for (String difficultyName : difficulties) {
+            Difficulty difficulty = Difficulty.valueOf(difficultyName.trim().toUpperCase());
+            for (String strategyName : strategies) {
+                StrategyType strategy = StrategyType.valueOf(strategyName.trim().toUpperCase());
+                // прогрев JIT на той же серии
+                runner.run(difficulty, strategy, Math.min(games, 1000), seed);
+                long start = System.nanoTime();
+                SimulationResult result = runner.run(difficulty, strategy, games, seed);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                LatencyHistogram latency = result.getMoveLatency();
+                System.out.printf("%-8s %-13s %8d %7.2f%% %10.0f %12.0f %9.2f %9.2f %9.2f %9.2f%n",
+                        difficulty, strategy, result.getWins(), result.getWinRate() * 100,
+                        result.getGames() / seconds, result.getMoves() / seconds,
+                        latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                        latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3);
+            }
+        }
+        runner.shutdown();
+    }
+
+    private static String[] names(StrategyType[] types) {
+        String[] names = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            names[i] = types[i].name();
+        }
+        return names;
+    }
+}
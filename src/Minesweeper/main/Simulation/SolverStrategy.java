@@ -0,0 +1,40 @@
+package Minesweeper.main.Simulation;
+
+import Minesweeper.main.Engine.GameEngine;
+import Minesweeper.main.Solver.ConstraintSolver;
+import Minesweeper.main.Solver.ProbabilityEngine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Стратегия на основе решателя {@link ConstraintSolver}: открывает клетки, безопасность которых доказана, а когда
+ * таких нет, открывает клетку с наименьшей вероятностью мины {@link ProbabilityEngine}. Первый ход делается наугад.
+ * Флаги не ставит: для победы они не нужны
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public class SolverStrategy extends RandomStrategy {
+
+    private ConstraintSolver solver;
+
+    @Override
+    public void startGame(GameEngine engine) {
+        solver = engine.getSolver();
+    }
+
+    @Override
+    public void makeMove(GameEngine engine, SplittableRandom random) {
+        long cell = solver.nextSafeCell();
+        if (cell != ConstraintSolver.NONE) {
+            engine.reveal(ConstraintSolver.keyX(cell), ConstraintSolver.keyY(cell));
+            return;
+        }
+        if (!engine.isStarted()) {
+            super.makeMove(engine, random);
+            return;
+        }
+        cell = engine.computeProbabilities().findSafestCell();
+        engine.reveal(ConstraintSolver.keyX(cell), ConstraintSolver.keyY(cell));
+    }
+}
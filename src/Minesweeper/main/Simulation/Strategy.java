@@ -0,0 +1,31 @@
+package Minesweeper.main.Simulation;
+
+import Minesweeper.main.Engine.GameEngine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Стратегия игры бота. Стратегия видит только то, что видит игрок: видимое поле движка {@link GameEngine}.
+ * Один экземпляр стратегии играет игры одного потока последовательно, поэтому может хранить буферы между ходами
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see SimulationRunner
+ */
+public interface Strategy {
+
+    /**
+     * Вызывается перед первым ходом каждой игры
+     */
+    default void startGame(GameEngine engine) {
+    }
+
+    /**
+     * Делает ровно один ход: открытие клетки, установку флага или открытие клеток вокруг цифры.
+     * Вызывается, пока игра не закончена
+     *
+     * @param engine - движок текущей игры
+     * @param random - генератор игры. Стратегия должна брать случайность только из него, чтобы игры воспроизводились
+     */
+    void makeMove(GameEngine engine, SplittableRandom random);
+}
@@ -0,0 +1,29 @@
+package Minesweeper.main.Simulation;
+
+import java.util.function.Supplier;
+
+/**
+ * Перечисление стратегий, доступных симулятору {@link SimulationRunner}
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ */
+public enum StrategyType {
+
+    RANDOM(RandomStrategy::new),
+    SIMPLE_RULES(SimpleRulesStrategy::new),
+    SOLVER(SolverStrategy::new);
+
+    private final Supplier<Strategy> factory;
+
+    StrategyType(Supplier<Strategy> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Создает новый экземпляр стратегии. Каждый поток симулятора играет своим экземпляром
+     */
+    public Strategy create() {
+        return factory.get();
+    }
+}
@@ -0,0 +1,562 @@
+package Minesweeper.main.Solver;
+
+import Minesweeper.main.BoardMVC.DirtyRegion;
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.util.Arrays;
+
+/**
+ * Решатель, находящий клетки, которые наверняка безопасны или наверняка содержат мину. Каждая открытая цифра с
+ * закрытыми соседями - ограничение: среди неизвестных соседей столько мин, сколько показывает цифра, за вычетом
+ * уже найденных мин. К ограничениям применяются правила:
+ * <ul>
+ * <li>одиночное: если мин не осталось, все неизвестные соседи безопасны, а если мин столько же, сколько
+ * неизвестных соседей, все они - мины;</li>
+ * <li>попарное: для двух пересекающихся ограничений A и B, если мин в B больше, чем в A, ровно на количество
+ * клеток B вне A, то эти клетки - мины, а клетки A вне B безопасны. Правило подмножества - его частный случай.</li>
+ * </ul>
+ * Решатель не сканирует поле: после каждого хода в очередь попадают только цифры в прямоугольнике измененных клеток
+ * {@link ConstraintSolver#cellsChanged(DirtyRegion)}, у которых еще есть закрытые соседи, а найденные клетки
+ * добавляют в очередь соседние цифры. Поэтому стоимость подсказки зависит от последнего хода, а не от размера поля.
+ * Очереди и множества клеток хранят ключи в массивах long без упаковки в объекты, поэтому и открытие области
+ * в миллионы клеток добавляет в очередь только цифры ее границы.
+ * <p>
+ * Флаги игрока не считаются минами, потому что игрок мог ошибиться: учитываются только мины, найденные решателем
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see Minesweeper.main.Engine.GameEngine#getSolver()
+ */
+public class ConstraintSolver {
+
+    /**
+     * Значение, возвращаемое, когда подходящей клетки нет
+     */
+    public static final long NONE = -1;
+
+    private final BoardModelInterface model;
+
+    /**
+     * Очередь цифр, ограничения которых нужно пересмотреть, и множество цифр, уже стоящих в очереди
+     */
+    private final CellQueue pending = new CellQueue();
+    private CellSet queued;
+
+    /**
+     * Найденные безопасные клетки, которые еще могут быть закрыты, в порядке нахождения, и все найденные мины.
+     * Открытые безопасные клетки удаляются из множества, когда {@link ConstraintSolver#nextSafeCell()} доходит до них
+     */
+    private CellSet safeCells;
+    private final CellQueue safeOrder = new CellQueue();
+    private CellSet mineCells;
+    private final CellQueue mineOrder = new CellQueue();
+
+    /**
+     * Переиспользуемые ограничения и буферы попарного правила
+     */
+    private final Constraint first = new Constraint();
+    private final Constraint second = new Constraint();
+    private final long[] onlyFirst = new long[8];
+    private final long[] onlySecond = new long[8];
+
+    public ConstraintSolver(BoardModelInterface model) {
+        this.model = model;
+        reset();
+    }
+
+    /**
+     * Забывает все найденное. Вызывается в начале новой игры, когда размеры поля модели уже заданы
+     */
+    public void reset() {
+        pending.clear();
+        safeOrder.clear();
+        mineOrder.clear();
+        long cells = (long) model.getWidth() * model.getHeight();
+        int width = cells <= CellSet.MAX_BITMAP_CELLS ? model.getWidth() : 0;
+        queued = new CellSet(width, cells);
+        safeCells = new CellSet(width, cells);
+        mineCells = new CellSet(width, cells);
+    }
+
+    /**
+     * Ставит в очередь открытые клетки в прямоугольнике измененных клеток и вокруг него: изменение клетки влияет
+     * на ограничения ее соседей. В очередь попадают только цифры с закрытыми соседями: у пустой клетки после
+     * заливки закрытых соседей нет, а цифра без закрытых соседей ограничений не дает
+     *
+     * @param region - прямоугольник клеток, измененных ходом
+     */
+    public void cellsChanged(DirtyRegion region) {
+        if (region.isEmpty()) {
+            return;
+        }
+        int fromX = Math.max(region.getMinX() - 1, 0);
+        int fromY = Math.max(region.getMinY() - 1, 0);
+        int toX = Math.min(region.getMaxX() + 1, model.getWidth() - 1);
+        int toY = Math.min(region.getMaxY() + 1, model.getHeight() - 1);
+        if (region.getMinX() == region.getMaxX() && region.getMinY() == region.getMaxY()) {
+            // флаг снимается ходом в одну клетку: найденная мина снова ждет подсказки
+            long key = key(region.getMinX(), region.getMinY());
+            if (model.getVisibleCellType(region.getMinX(), region.getMinY()) != CellType.FLAG
+                    && mineCells.contains(key)) {
+                mineOrder.offer(key);
+            }
+        }
+        for (int y = fromY; y <= toY; y++) {
+            for (int x = fromX; x <= toX; x++) {
+                int number = model.getVisibleCellType(x, y).ordinal();
+                if (number > CellType.EMPTY.ordinal() && number <= CellType.EIGHT.ordinal()
+                        && hasClosedNeighbor(x, y)) {
+                    enqueue(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Пересматривает ограничения из очереди, пока новые клетки находятся
+     */
+    public void solve() {
+        while (!pending.isEmpty()) {
+            step();
+        }
+    }
+
+    /**
+     * Возвращает найденную безопасную клетку, которая еще закрыта. Очередь пересматривается только до первой такой
+     * клетки, остальные цифры ждут следующего вызова, поэтому подсказка после открытия большой области не
+     * перебирает всю ее границу
+     *
+     * @return ключ клетки {@link ConstraintSolver#key(int, int)} или {@link ConstraintSolver#NONE}
+     */
+    public long nextSafeCell() {
+        while (true) {
+            while (!safeOrder.isEmpty()) {
+                long key = safeOrder.peek();
+                if (model.getVisibleCellType(keyX(key), keyY(key)).isClosed()) {
+                    return key;
+                }
+                safeOrder.poll();
+                safeCells.remove(key);
+            }
+            if (pending.isEmpty()) {
+                return NONE;
+            }
+            step();
+        }
+    }
+
+    /**
+     * Возвращает найденную мину, которая еще не отмечена флагом. Как и {@link ConstraintSolver#nextSafeCell()},
+     * пересматривает очередь только до первой такой мины. Отмеченные мины уходят из очереди и возвращаются в нее,
+     * когда игрок снимает флаг
+     *
+     * @return ключ клетки {@link ConstraintSolver#key(int, int)} или {@link ConstraintSolver#NONE}
+     */
+    public long nextMineCell() {
+        while (true) {
+            while (!mineOrder.isEmpty()) {
+                long key = mineOrder.peek();
+                if (model.getVisibleCellType(keyX(key), keyY(key)) != CellType.FLAG) {
+                    return key;
+                }
+                mineOrder.poll();
+            }
+            if (pending.isEmpty()) {
+                return NONE;
+            }
+            step();
+        }
+    }
+
+    /**
+     * Пересматривает одно ограничение из очереди
+     */
+    private void step() {
+        long key = pending.poll();
+        queued.remove(key);
+        examine(keyX(key), keyY(key));
+    }
+
+    public boolean isSafe(int x, int y) {
+        return safeCells.contains(key(x, y));
+    }
+
+    public boolean isMine(int x, int y) {
+        return mineCells.contains(key(x, y));
+    }
+
+    /**
+     * Количество найденных мин. Нужно для подсчета мин, оставшихся вне ограничений
+     */
+    public int getMineCount() {
+        return mineCells.size();
+    }
+
+    /**
+     * Ключ клетки: координаты, упакованные в long. Подходит и для бесконечного поля
+     */
+    public static long key(int x, int y) {
+        return ((long) y << 32) | (x & 0xFFFFFFFFL);
+    }
+
+    public static int keyX(long key) {
+        return (int) key;
+    }
+
+    public static int keyY(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Применяет одиночное правило к цифре, затем попарное - к ней и каждой цифре в квадрате 5x5 вокруг нее,
+     * то есть ко всем ограничениям, которые могут иметь с ней общих соседей
+     */
+    private void examine(int x, int y) {
+        if (!first.gather(x, y) || first.size == 0) {
+            return;
+        }
+        if (first.mines == 0) {
+            markSafe(first.cells, first.size);
+            return;
+        }
+        if (first.mines == first.size) {
+            markMines(first.cells, first.size);
+            return;
+        }
+        for (int j = Math.max(y - 2, 0); j <= Math.min(y + 2, model.getHeight() - 1); j++) {
+            for (int i = Math.max(x - 2, 0); i <= Math.min(x + 2, model.getWidth() - 1); i++) {
+                if ((i == x && j == y) || !second.gather(i, j) || second.size == 0) {
+                    continue;
+                }
+                if (comparePair(first, second) || comparePair(second, first)) {
+                    // найденные клетки изменили ограничение, оно пересмотрено через очередь
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Попарное правило для ограничений a и b
+     *
+     * @return найдена ли хотя бы одна новая клетка
+     */
+    private boolean comparePair(Constraint a, Constraint b) {
+        int onlyA = 0;
+        int common = 0;
+        for (int i = 0; i < a.size; i++) {
+            if (b.contains(a.cells[i])) {
+                common++;
+            } else {
+                onlyFirst[onlyA++] = a.cells[i];
+            }
+        }
+        if (common == 0) {
+            return false;
+        }
+        int onlyB = 0;
+        for (int i = 0; i < b.size; i++) {
+            if (!a.contains(b.cells[i])) {
+                onlySecond[onlyB++] = b.cells[i];
+            }
+        }
+        if (onlyA + onlyB == 0 || b.mines - a.mines != onlyB) {
+            return false;
+        }
+        markMines(onlySecond, onlyB);
+        markSafe(onlyFirst, onlyA);
+        return true;
+    }
+
+    private void markSafe(long[] cells, int size) {
+        for (int i = 0; i < size; i++) {
+            if (safeCells.add(cells[i])) {
+                safeOrder.offer(cells[i]);
+                enqueueNeighbors(keyX(cells[i]), keyY(cells[i]));
+            }
+        }
+    }
+
+    private void markMines(long[] cells, int size) {
+        for (int i = 0; i < size; i++) {
+            if (mineCells.add(cells[i])) {
+                mineOrder.offer(cells[i]);
+                enqueueNeighbors(keyX(cells[i]), keyY(cells[i]));
+            }
+        }
+    }
+
+    private void enqueueNeighbors(int x, int y) {
+        for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, model.getHeight() - 1); j++) {
+            for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, model.getWidth() - 1); i++) {
+                if (isRevealed(i, j)) {
+                    enqueue(i, j);
+                }
+            }
+        }
+    }
+
+    private void enqueue(int x, int y) {
+        long key = key(x, y);
+        if (queued.add(key)) {
+            pending.offer(key);
+        }
+    }
+
+    private boolean hasClosedNeighbor(int x, int y) {
+        for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, model.getHeight() - 1); j++) {
+            for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, model.getWidth() - 1); i++) {
+                if (model.getVisibleCellType(i, j).isClosed()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Открыта ли клетка, то есть является ли она пустой клеткой или цифрой
+     */
+    private boolean isRevealed(int x, int y) {
+        return model.getVisibleCellType(x, y).ordinal() <= CellType.EIGHT.ordinal();
+    }
+
+    /**
+     * Ограничение одной цифры: неизвестные соседи и количество мин среди них
+     */
+    private class Constraint {
+
+        private final long[] cells = new long[8];
+        private int size;
+        private int mines;
+
+        /**
+         * Собирает ограничение цифры (x, y)
+         *
+         * @return false, если клетка не открыта
+         */
+        boolean gather(int x, int y) {
+            int number = model.getVisibleCellType(x, y).ordinal();
+            if (number > CellType.EIGHT.ordinal()) {
+                return false;
+            }
+            size = 0;
+            mines = number;
+            for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, model.getHeight() - 1); j++) {
+                for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, model.getWidth() - 1); i++) {
+                    if (!model.getVisibleCellType(i, j).isClosed()) {
+                        continue;
+                    }
+                    long key = key(i, j);
+                    if (mineCells.contains(key)) {
+                        mines--;
+                    } else if (!safeCells.contains(key)) {
+                        cells[size++] = key;
+                    }
+                }
+            }
+            return true;
+        }
+
+        boolean contains(long key) {
+            for (int i = 0; i < size; i++) {
+                if (cells[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Множество ключей клеток. На обычном поле это битовая карта по номерам клеток, на бесконечном или слишком
+     * большом - хэш-таблица с открытой адресацией и линейным пробированием. Удаление из таблицы сдвигает следующие
+     * ключи цепочки назад, поэтому таблица не копит удаленные ячейки. Ключи в Long дают почти одинаковые хэши
+     * у клеток одной диагонали, поэтому ключ перемешивается умножением
+     */
+    private static final class CellSet {
+
+        /**
+         * Наибольшее количество клеток поля, для которого используется битовая карта: 8 Мб на множество
+         */
+        static final long MAX_BITMAP_CELLS = 1L << 26;
+
+        /**
+         * Пустая ячейка таблицы. Это ключ клетки со строкой Integer.MIN_VALUE, которой нет ни на одном поле
+         */
+        private static final long EMPTY = Long.MIN_VALUE;
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * Ширина поля битовой карты, 0 - множество хранится в хэш-таблице
+         */
+        private final int width;
+        private long[] bits;
+        private long[] keys;
+        private int shift;
+        private int size;
+
+        /**
+         * @param width - ширина поля для битовой карты или 0 для хэш-таблицы
+         * @param cells - количество клеток поля
+         */
+        CellSet(int width, long cells) {
+            this.width = width;
+            if (width > 0) {
+                bits = new long[(int) ((cells + 63) >>> 6)];
+            } else {
+                allocate(INITIAL_CAPACITY);
+            }
+        }
+
+        boolean contains(long key) {
+            if (width > 0) {
+                int index = index(key);
+                return (bits[index >>> 6] & (1L << index)) != 0;
+            }
+            int mask = keys.length - 1;
+            for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return false, если ключ уже был в множестве
+         */
+        boolean add(long key) {
+            if (width > 0) {
+                int index = index(key);
+                long bit = 1L << index;
+                if ((bits[index >>> 6] & bit) != 0) {
+                    return false;
+                }
+                bits[index >>> 6] |= bit;
+                size++;
+                return true;
+            }
+            int mask = keys.length - 1;
+            int slot = slot(key);
+            for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+            }
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                long[] old = keys;
+                allocate(keys.length * 2);
+                for (long oldKey : old) {
+                    if (oldKey != EMPTY) {
+                        insert(oldKey);
+                    }
+                }
+            }
+            return true;
+        }
+
+        void remove(long key) {
+            if (width > 0) {
+                int index = index(key);
+                long bit = 1L << index;
+                if ((bits[index >>> 6] & bit) != 0) {
+                    bits[index >>> 6] &= ~bit;
+                    size--;
+                }
+                return;
+            }
+            int mask = keys.length - 1;
+            int gap = slot(key);
+            while (keys[gap] != key) {
+                if (keys[gap] == EMPTY) {
+                    return;
+                }
+                gap = (gap + 1) & mask;
+            }
+            for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                // ключ сдвигается в освободившуюся ячейку, если она лежит между его местом и текущей ячейкой
+                if (((next - slot(keys[next])) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = EMPTY;
+            size--;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int index(long key) {
+            return keyY(key) * width + keyX(key);
+        }
+
+        private void insert(long key) {
+            int mask = keys.length - 1;
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+        }
+
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        }
+    }
+
+    /**
+     * Кольцевая очередь ключей клеток. Размер - степень двойки, при переполнении удваивается
+     */
+    private static final class CellQueue {
+
+        private long[] keys = new long[16];
+        private int head;
+        private int size;
+
+        void offer(long key) {
+            if (size == keys.length) {
+                long[] grown = new long[keys.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = keys[(head + i) & (keys.length - 1)];
+                }
+                keys = grown;
+                head = 0;
+            }
+            keys[(head + size++) & (keys.length - 1)] = key;
+        }
+
+        long peek() {
+            return keys[head];
+        }
+
+        long poll() {
+            long key = keys[head];
+            head = (head + 1) & (keys.length - 1);
+            size--;
+            return key;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            if (keys.length > 16) {
+                keys = new long[16];
+            }
+            head = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,1123 @@
+package Minesweeper.main.Solver;
+
+import Minesweeper.main.BoardModelInterface;
+import Minesweeper.main.CellType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Точный расчет вероятности мины в каждой закрытой клетке.
+ * <p>
+ * Граница - закрытые клетки, соседние с открытыми цифрами, - разбивается на независимые компоненты: клетки связаны,
+ * если входят в одно ограничение. Решения каждой компоненты перебираются по клеткам, а одинаковые состояния
+ * перебора (позиция и остатки ограничений, еще не закрытых перебором) сливаются. Для каждой компоненты
+ * получается число решений и число решений с миной в каждой клетке при каждом количестве мин k.
+ * <p>
+ * Остальные мины лежат во внутренних клетках, не граничащих с цифрами, поэтому решение всей границы с s минами
+ * имеет вес C(внутренних клеток, оставшихся мин - s). Компоненты объединяются сверткой по количеству мин
+ * с этим весом. На бесконечном поле общего количества мин нет, вес равен (p / (1 - p))^s, где p - плотность мин,
+ * и раскладывается на множители по компонентам, поэтому свертка не нужна.
+ * <p>
+ * Весь расчет ограничен бюджетом времени {@link ProbabilityEngine#setTimeBudget(long)}. Компоненты окна,
+ * не уложившиеся в бюджет, оцениваются приближенно по случайной выборке решений, пока бюджет не исчерпан,
+ * а дальше их клетки получают вероятность внутренней клетки. Если не уложились компоненты вне окна или свертка,
+ * клетки считаются независимыми с вероятностью мины оставшиеся мины / неизвестные клетки, как на бесконечном поле
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see ProbabilityMap
+ */
+public class ProbabilityEngine {
+
+    /**
+     * Бюджет времени по умолчанию, наносекунд
+     */
+    public static final long DEFAULT_TIME_BUDGET = 50_000_000L;
+
+    /**
+     * Количество решений в выборке для компоненты, не уложившейся в бюджет, и ограничение шагов поиска одного решения
+     */
+    private static final int SAMPLES = 2000;
+    private static final int SAMPLE_STEPS = 10_000;
+
+    /**
+     * Предельный объем узлов точного перебора одной компоненты: сумма длин их массивов и строк cellMines
+     */
+    private static final long MEMO_LIMIT = 1L << 21;
+
+    private final BoardModelInterface model;
+    private final SplittableRandom random = new SplittableRandom(0);
+    private long timeBudget = DEFAULT_TIME_BUDGET;
+
+    public ProbabilityEngine(BoardModelInterface model) {
+        this.model = model;
+    }
+
+    /**
+     * @param timeBudget - время одного расчета, наносекунд. Точный перебор занимает не больше половины,
+     *                   остаток - выборка решений и свертка
+     */
+    public void setTimeBudget(long timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Расчет для всего обычного поля. Поле просматривается целиком независимо от бюджета
+     *
+     * @param mines  - количество мин на поле
+     * @param solver - решатель текущей игры, найденные им клетки считаются известными. Может быть null
+     */
+    public ProbabilityMap compute(int mines, ConstraintSolver solver) {
+        int toX = model.getWidth() - 1;
+        int toY = model.getHeight() - 1;
+        return compute(0, 0, toX, toY, 0, 0, toX, toY, mines, Double.NaN, solver);
+    }
+
+    /**
+     * Расчет для окна обычного поля. Ограничения собираются со всего поля, так как мины вне окна влияют
+     * на вероятности в нем, а вероятности записываются только для клеток окна. Если просмотр поля не укладывается
+     * в бюджет, карта строится приближенно по ограничениям окна, как на бесконечном поле, с плотностью мин
+     * оставшиеся мины / закрытые клетки. Если окно - все поле, этой плотностью заполняются клетки, до которых
+     * просмотр не дошел
+     *
+     * @param mines       - количество мин на поле
+     * @param closedCells - количество закрытых клеток поля
+     * @param solver      - решатель текущей игры. Может быть null
+     * @param fromX,      @param fromY, @param toX, @param toY - окно, включая границы
+     */
+    public ProbabilityMap compute(int mines, int closedCells, ConstraintSolver solver,
+                                  int fromX, int fromY, int toX, int toY) {
+        int knownMines = solver == null ? 0 : solver.getMineCount();
+        double density = closedCells <= knownMines ? 0
+                : Math.min(Math.max((double) (mines - knownMines) / (closedCells - knownMines), 0), 1);
+        return compute(0, 0, model.getWidth() - 1, model.getHeight() - 1, Math.max(fromX, 0), Math.max(fromY, 0),
+                Math.min(toX, model.getWidth() - 1), Math.min(toY, model.getHeight() - 1), mines, density,
+                solver);
+    }
+
+    /**
+     * Расчет для окна бесконечного поля при известной плотности мин
+     *
+     * @param density - вероятность мины в клетке, о которой ничего не известно
+     * @param solver  - решатель текущей игры. Может быть null
+     * @param fromX,  @param fromY, @param toX, @param toY - окно, включая границы
+     */
+    public ProbabilityMap compute(double density, ConstraintSolver solver, int fromX, int fromY, int toX, int toY) {
+        fromX = Math.max(fromX, 0);
+        fromY = Math.max(fromY, 0);
+        toX = Math.min(toX, model.getWidth() - 1);
+        toY = Math.min(toY, model.getHeight() - 1);
+        return compute(fromX, fromY, toX, toY, fromX, fromY, toX, toY, -1, density, solver);
+    }
+
+    /**
+     * @param scanFromX, @param scanFromY, @param scanToX, @param scanToY - область, ограничения которой учитываются
+     * @param fromX,     @param fromY, @param toX, @param toY - окно карты внутри области
+     * @param mines      - количество мин на поле, -1 - бесконечное поле
+     * @param density    - плотность мин бесконечного поля или приближенная плотность обычного поля
+     */
+    private ProbabilityMap compute(int scanFromX, int scanFromY, int scanToX, int scanToY,
+                                   int fromX, int fromY, int toX, int toY, int mines, double density,
+                                   ConstraintSolver solver) {
+        long start = System.nanoTime();
+        long solveDeadline = start + timeBudget / 2;
+        long deadline = start + timeBudget;
+        ProbabilityMap map = new ProbabilityMap(fromX, fromY, toX - fromX + 1, toY - fromY + 1);
+        Frontier frontier = new Frontier();
+        int unknownCells = 0;
+        int knownMines = 0;
+        // просмотр обычного поля, не уложившийся в бюджет, заменяется расчетом по окну, а если окно - все поле,
+        // прерывается, и клетки после прерывания получают приближенную плотность
+        boolean wider = scanFromX < fromX || scanFromY < fromY || scanToX > toX || scanToY > toY;
+        boolean partial = false;
+        for (int y = scanFromY; y <= scanToY; y++) {
+            if (mines >= 0 && !Double.isNaN(density) && System.nanoTime() > deadline) {
+                if (wider) {
+                    ProbabilityMap local = compute(fromX, fromY, toX, toY, fromX, fromY, toX, toY, -1, density,
+                            solver);
+                    local.setInexact();
+                    return local;
+                }
+                partial = true;
+                break;
+            }
+            for (int x = scanFromX; x <= scanToX; x++) {
+                CellType cellType = model.getVisibleCellType(x, y);
+                if (cellType.ordinal() <= CellType.EIGHT.ordinal()) {
+                    frontier.addConstraint(x, y, cellType.ordinal(), solver);
+                } else if (cellType.isClosed()) {
+                    if (solver != null && solver.isMine(x, y)) {
+                        knownMines++;
+                        map.set(x, y, 1);
+                    } else if (solver != null && solver.isSafe(x, y)) {
+                        map.set(x, y, 0);
+                    } else {
+                        unknownCells++;
+                    }
+                }
+            }
+        }
+
+        // компоненты окна перебираются первыми: без остальных можно обойтись приближенным расчетом,
+        // без компонент окна карты не получится
+        List<Component> components;
+        try {
+            components = frontier.split(deadline);
+        } catch (BudgetExceededException e) {
+            if (wider) {
+                ProbabilityMap local = compute(fromX, fromY, toX, toY, fromX, fromY, toX, toY, -1, density, solver);
+                local.setInexact();
+                return local;
+            }
+            // все клетки, кроме известных решателю, получают приближенную плотность
+            components = new ArrayList<>();
+            partial = true;
+            if (Double.isNaN(density)) {
+                density = unknownCells == 0 ? 0
+                        : Math.min(Math.max((double) (mines - knownMines) / unknownCells, 0), 1);
+            }
+        }
+        // решения с k минами хранятся с множителем ratio^k, ratio = p / (1 - p) для средней плотности p:
+        // иначе у больших компонент числа решений и веса внутренних клеток расходятся на сотни порядков
+        // и их произведения обнуляются в double
+        double average = mines < 0 ? density
+                : unknownCells == 0 ? 0 : (double) (mines - knownMines) / unknownCells;
+        double logRatio = average > 0 && average < 1 ? Math.log(average / (1 - average)) : 0;
+        int frontierCells = 0;
+        boolean solved = true;
+        for (Component component : components) {
+            component.visible = component.intersects(fromX, fromY, toX, toY);
+            frontierCells += component.size();
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (Component component : components) {
+                if (component.visible != (pass == 0) || !component.visible && mines < 0) {
+                    continue;
+                }
+                if (System.nanoTime() < solveDeadline) {
+                    component.solveExact(solveDeadline, logRatio);
+                }
+                if (component.ways != null) {
+                    continue;
+                }
+                if (component.visible) {
+                    component.sample(random, deadline, logRatio);
+                    map.setInexact();
+                }
+                solved &= component.ways != null;
+            }
+        }
+
+        int interiorCells = unknownCells - frontierCells;
+        int minesLeft = mines - knownMines;
+        double interior = Double.NaN;
+        if (partial) {
+            interior = density;
+            map.setInexact();
+        } else if (mines >= 0 && solved) {
+            try {
+                interior = convolve(components, interiorCells, minesLeft, frontierCells, logRatio, map, deadline);
+            } catch (BudgetExceededException e) {
+                interior = Double.NaN;
+            }
+        }
+        if (Double.isNaN(interior)) {
+            // клетки считаются независимыми с одинаковой вероятностью мины, и вес решений компоненты
+            // от остальных компонент не зависит
+            interior = mines < 0 || partial ? density
+                    : unknownCells == 0 ? 0 : Math.min(Math.max((double) minesLeft / unknownCells, 0), 1);
+            if (mines >= 0) {
+                map.setInexact();
+            }
+            for (Component component : components) {
+                if (component.visible && component.ways != null) {
+                    component.apply(independentWeights(interior, component.ways.length, logRatio), map, interior);
+                }
+            }
+        }
+        map.setInteriorProbability(interior);
+        for (int y = fromY; y <= toY; y++) {
+            for (int x = fromX; x <= toX; x++) {
+                if (Double.isNaN(map.getProbability(x, y)) && model.getVisibleCellType(x, y).isClosed()) {
+                    map.set(x, y, interior);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Объединяет компоненты сверткой по количеству мин с весом внутренних клеток C(interiorCells, minesLeft - s)
+     * и записывает вероятности клеток компонент окна. Количество мин в массивах ограничено оставшимися минами
+     * и суммой размеров уже учтенных компонент. Веса компонент, идущих после текущей (backward), хранятся только
+     * для каждой step-й компоненты, step ~ sqrt(компонент), а между ними пересчитываются во время прямого прохода
+     *
+     * @return вероятность мины во внутренней клетке
+     * @throws BudgetExceededException если бюджет времени исчерпан
+     */
+    private double convolve(List<Component> components, int interiorCells, int minesLeft, int frontierCells,
+                            double logRatio, ProbabilityMap map, long deadline) {
+        int count = components.size();
+        int cap = Math.max(0, Math.min(frontierCells, minesLeft));
+        int[] limit = new int[count + 1];
+        for (int c = 0, before = 0; c <= count; c++) {
+            limit[c] = Math.min(cap, before) + 1;
+            before += c < count ? components.get(c).size() : 0;
+        }
+        double[] weight = binomialWeights(interiorCells, minesLeft, cap, logRatio);
+        int step = Math.max(1, (int) Math.sqrt(count));
+
+        // backward[c][t] - вес всех компонент начиная с c, если предыдущие содержат t мин
+        double[][] checkpoints = new double[count + 1][];
+        double[] next = weight;
+        checkpoints[count] = next;
+        for (int c = count - 1; c >= 0; c--) {
+            next = backwardStep(components.get(c).ways, next, limit[c], deadline);
+            if (c % step == 0) {
+                checkpoints[c] = next;
+            }
+        }
+
+        // forward[t] - количество способов расположить t мин в уже пройденных компонентах
+        double[] forward = {1};
+        double[][] backward = new double[step + 1][];
+        for (int from = 0; from < count; from += step) {
+            int to = Math.min(from + step, count);
+            backward[to - from] = checkpoints[to];
+            for (int c = to - 1; c > from; c--) {
+                backward[c - from] = backwardStep(components.get(c).ways, backward[c - from + 1], limit[c], deadline);
+            }
+            for (int c = from; c < to; c++) {
+                checkDeadline(deadline);
+                Component component = components.get(c);
+                next = backward[c - from + 1];
+                if (component.visible) {
+                    double[] kWeight = new double[component.ways.length];
+                    for (int t = 0; t < forward.length; t++) {
+                        if (forward[t] == 0) {
+                            continue;
+                        }
+                        for (int k = 0; k < kWeight.length && t + k < next.length; k++) {
+                            kWeight[k] += forward[t] * next[t + k];
+                        }
+                    }
+                    component.apply(kWeight, map, Double.NaN);
+                }
+                double[] shifted = new double[limit[c + 1]];
+                for (int t = 0; t < forward.length; t++) {
+                    if (forward[t] == 0) {
+                        continue;
+                    }
+                    for (int k = 0; k < component.ways.length && t + k < shifted.length; k++) {
+                        shifted[t + k] += forward[t] * component.ways[k];
+                    }
+                }
+                forward = normalize(shifted);
+            }
+            checkpoints[from] = null;
+        }
+
+        double total = 0;
+        double expected = 0;
+        for (int t = 0; t < forward.length; t++) {
+            total += forward[t] * weight[t];
+            expected += forward[t] * weight[t] * (minesLeft - t);
+        }
+        return total == 0 || interiorCells == 0 ? 0 : expected / total / interiorCells;
+    }
+
+    /**
+     * Вес компонент начиная с текущей по весу компонент после нее
+     *
+     * @param ways   - решения текущей компоненты по количеству мин
+     * @param next   - вес компонент после текущей
+     * @param length - наибольшее количество мин в предыдущих компонентах плюс один
+     */
+    private static double[] backwardStep(double[] ways, double[] next, int length, long deadline) {
+        double[] current = new double[length];
+        for (int t = 0; t < length; t++) {
+            if ((t & 0x3FF) == 0) {
+                checkDeadline(deadline);
+            }
+            for (int k = 0; k < ways.length && t + k < next.length; k++) {
+                current[t] += ways[k] * next[t + k];
+            }
+        }
+        return normalize(current);
+    }
+
+    private static void checkDeadline(long deadline) {
+        if (System.nanoTime() > deadline) {
+            throw new BudgetExceededException();
+        }
+    }
+
+    /**
+     * Относительный вес C(interiorCells, minesLeft - s) / ratio^s для s мин на границе. Отношение соседних весов
+     * C(n, m - 1) / C(n, m) = m / (n - m + 1), поэтому веса считаются в логарифмах без факториалов
+     */
+    private static double[] binomialWeights(int interiorCells, int minesLeft, int frontierCells, double logRatio) {
+        double[] weight = new double[frontierCells + 1];
+        int from = Math.max(0, minesLeft - interiorCells);
+        int to = Math.min(frontierCells, minesLeft);
+        if (from > to) {
+            return weight;
+        }
+        double[] log = new double[to - from + 1];
+        for (int s = from + 1; s <= to; s++) {
+            int m = minesLeft - s + 1;
+            log[s - from] = log[s - from - 1] + Math.log((double) m / (interiorCells - m + 1)) - logRatio;
+        }
+        double max = Arrays.stream(log).max().getAsDouble();
+        for (int s = from; s <= to; s++) {
+            weight[s] = Math.exp(log[s - from] - max);
+        }
+        return weight;
+    }
+
+    /**
+     * Вес (p / (1 - p))^k / ratio^k решения компоненты с k минами, если клетки независимы и мина в каждой
+     * с вероятностью p
+     */
+    private static double[] independentWeights(double density, int length, double logRatio) {
+        double[] weight = new double[length];
+        if (density <= 0 || density >= 1) {
+            weight[density <= 0 ? 0 : length - 1] = 1;
+            return weight;
+        }
+        double ratio = Math.log(density / (1 - density)) - logRatio;
+        double max = Math.max(0, ratio * (length - 1));
+        for (int k = 0; k < length; k++) {
+            weight[k] = Math.exp(ratio * k - max);
+        }
+        return weight;
+    }
+
+    private static double[] normalize(double[] values) {
+        double max = 0;
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+        if (max > 0) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] /= max;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Превышение бюджета времени или памяти перебора
+     */
+    private static class BudgetExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Граница: неизвестные закрытые клетки и ограничения открытых цифр
+     */
+    private class Frontier {
+
+        /**
+         * Номера клеток по ключам: хэш-таблица с открытой адресацией, в ячейке хранится номер клетки плюс один,
+         * 0 - пустая ячейка. Ключи в Long дают почти одинаковые хэши у клеток одной диагонали
+         */
+        private int[] slots = new int[128];
+        private int cellCount;
+        private long[] cellKeys = new long[64];
+        private final List<int[]> constraintCells = new ArrayList<>();
+        private final List<Integer> constraintMines = new ArrayList<>();
+
+        void addConstraint(int x, int y, int number, ConstraintSolver solver) {
+            int[] cells = new int[8];
+            int size = 0;
+            for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, model.getHeight() - 1); j++) {
+                for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, model.getWidth() - 1); i++) {
+                    if (!model.getVisibleCellType(i, j).isClosed()) {
+                        continue;
+                    }
+                    if (solver != null && solver.isMine(i, j)) {
+                        number--;
+                    } else if (solver == null || !solver.isSafe(i, j)) {
+                        cells[size++] = cellId(ConstraintSolver.key(i, j));
+                    }
+                }
+            }
+            if (size > 0) {
+                constraintCells.add(Arrays.copyOf(cells, size));
+                constraintMines.add(number);
+            }
+        }
+
+        private int cellId(long key) {
+            int mask = slots.length - 1;
+            int slot = slot(key, mask);
+            while (slots[slot] != 0) {
+                if (cellKeys[slots[slot] - 1] == key) {
+                    return slots[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int id = cellCount++;
+            if (id == cellKeys.length) {
+                cellKeys = Arrays.copyOf(cellKeys, id * 2);
+            }
+            cellKeys[id] = key;
+            slots[slot] = id + 1;
+            if (cellCount * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < cellCount; id++) {
+                int slot = slot(cellKeys[id], mask);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+
+        private int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+
+        /**
+         * Разбивает границу на компоненты связности системой непересекающихся множеств
+         *
+         * @throws BudgetExceededException если подготовка компонент не уложилась в бюджет
+         */
+        List<Component> split(long deadline) {
+            int cells = cellCount;
+            int[] parent = new int[cells];
+            for (int i = 0; i < cells; i++) {
+                parent[i] = i;
+            }
+            for (int[] constraint : constraintCells) {
+                for (int i = 1; i < constraint.length; i++) {
+                    parent[find(parent, constraint[i])] = find(parent, constraint[0]);
+                }
+            }
+            checkDeadline(deadline);
+            // ограничения каждой клетки: byCell[start[cell]..start[cell + 1])
+            int[] start = new int[cells + 1];
+            for (int[] constraint : constraintCells) {
+                for (int cell : constraint) {
+                    start[cell + 1]++;
+                }
+            }
+            for (int i = 0; i < cells; i++) {
+                start[i + 1] += start[i];
+            }
+            int[] byCell = new int[start[cells]];
+            int[] filled = Arrays.copyOf(start, cells);
+            int[] localIndex = new int[constraintCells.size()];
+            Map<Integer, Component> byRoot = new HashMap<>();
+            List<Component> components = new ArrayList<>();
+            for (int c = 0; c < constraintCells.size(); c++) {
+                for (int cell : constraintCells.get(c)) {
+                    byCell[filled[cell]++] = c;
+                }
+                int root = find(parent, constraintCells.get(c)[0]);
+                Component component = byRoot.get(root);
+                if (component == null) {
+                    component = new Component();
+                    byRoot.put(root, component);
+                    components.add(component);
+                }
+                localIndex[c] = component.constraints.size();
+                component.constraints.add(constraintCells.get(c));
+                component.mines.add(constraintMines.get(c));
+            }
+            // компоненты не пересекаются, поэтому номера клеток внутри компонент хранятся в одном массиве
+            int[] position = new int[cells];
+            Arrays.fill(position, -1);
+            for (Component component : components) {
+                component.prepare(cellKeys, start, byCell, localIndex, position, deadline);
+            }
+            return components;
+        }
+
+        private int find(int[] parent, int i) {
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Компонента границы. Клетки нумеруются в порядке обхода в ширину, чтобы ограничения закрывались перебором
+     * как можно раньше и состояние перебора было коротким
+     */
+    private static class Component {
+
+        private final List<int[]> constraints = new ArrayList<>();
+        private final List<Integer> mines = new ArrayList<>();
+
+        /**
+         * Есть ли у компоненты клетки в окне карты
+         */
+        private boolean visible;
+        private long[] keys;
+        private int[] required;
+        private int[] remaining;
+        private int[][] cellConstraints;
+        private int[][] cellsAfter;
+        private int[][] activeAt;
+        private int[][] startAt;
+
+        /**
+         * ways[k] - число решений с k минами, cellMines[k][i] - число таких решений с миной в клетке i.
+         * Строки cellMines создаются только для k, при которых решения есть
+         */
+        private double[] ways;
+        private double[][] cellMines;
+
+        private long memoSize;
+        private long steps;
+        private long deadline;
+
+        int size() {
+            return keys.length;
+        }
+
+        boolean intersects(int fromX, int fromY, int toX, int toY) {
+            for (long key : keys) {
+                int x = ConstraintSolver.keyX(key);
+                int y = ConstraintSolver.keyY(key);
+                if (x >= fromX && y >= fromY && x <= toX && y <= toY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Нумерует клетки обходом в ширину и строит для каждой клетки ее ограничения и количество клеток этих
+         * ограничений, идущих после нее
+         *
+         * @param start, @param byCell - ограничения клеток границы, byCell[start[cell]..start[cell + 1])
+         * @param localIndex           - номер ограничения границы внутри его компоненты
+         * @param position             - номера клеток в порядке обхода, -1 - клетка еще не пройдена
+         */
+        void prepare(long[] cellKeys, int[] start, int[] byCell, int[] localIndex, int[] position, long deadline) {
+            int bound = 0;
+            for (int[] constraint : constraints) {
+                bound += constraint.length;
+            }
+            int[] order = new int[bound];
+            int head = 0;
+            int tail = 0;
+            order[tail++] = constraints.get(0)[0];
+            position[order[0]] = 0;
+            while (head < tail) {
+                if ((head & 0x3FF) == 0) {
+                    checkDeadline(deadline);
+                }
+                int cell = order[head++];
+                for (int j = start[cell]; j < start[cell + 1]; j++) {
+                    for (int neighbor : constraints.get(localIndex[byCell[j]])) {
+                        if (position[neighbor] < 0) {
+                            position[neighbor] = tail;
+                            order[tail++] = neighbor;
+                        }
+                    }
+                }
+            }
+
+            int n = tail;
+            keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = cellKeys[order[i]];
+            }
+            int m = constraints.size();
+            required = new int[m];
+            int[] first = new int[m];
+            int[] last = new int[m];
+            int[][] local = new int[m][];
+            for (int c = 0; c < m; c++) {
+                required[c] = mines.get(c);
+                local[c] = new int[constraints.get(c).length];
+                for (int i = 0; i < local[c].length; i++) {
+                    local[c][i] = position[constraints.get(c)[i]];
+                }
+                Arrays.sort(local[c]);
+                first[c] = local[c][0];
+                last[c] = local[c][local[c].length - 1];
+            }
+            remaining = required.clone();
+            checkDeadline(deadline);
+            cellConstraints = new int[n][];
+            cellsAfter = new int[n][];
+            for (int i = 0; i < n; i++) {
+                int cell = order[i];
+                cellConstraints[i] = new int[start[cell + 1] - start[cell]];
+                cellsAfter[i] = new int[cellConstraints[i].length];
+                for (int j = 0; j < cellConstraints[i].length; j++) {
+                    int c = localIndex[byCell[start[cell] + j]];
+                    cellConstraints[i][j] = c;
+                    int after = 0;
+                    for (int other : local[c]) {
+                        if (other > i) {
+                            after++;
+                        }
+                    }
+                    cellsAfter[i][j] = after;
+                }
+            }
+            int[] activeCount = new int[n + 1];
+            int[] startCount = new int[n + 1];
+            for (int c = 0; c < m; c++) {
+                startCount[first[c]]++;
+                for (int i = first[c] + 1; i <= last[c]; i++) {
+                    activeCount[i]++;
+                }
+            }
+            activeAt = new int[n + 1][];
+            startAt = new int[n + 1][];
+            for (int i = 0; i <= n; i++) {
+                activeAt[i] = new int[activeCount[i]];
+                startAt[i] = new int[startCount[i]];
+                activeCount[i] = 0;
+                startCount[i] = 0;
+            }
+            for (int c = 0; c < m; c++) {
+                startAt[first[c]][startCount[first[c]]++] = c;
+                for (int i = first[c] + 1; i <= last[c]; i++) {
+                    activeAt[i][activeCount[i]++] = c;
+                }
+            }
+        }
+
+        /**
+         * Точный перебор по уровням без рекурсии. Уровень i - различные состояния перед клеткой i (остатки
+         * ограничений, начатых и не закрытых перебором), одинаковые состояния сливаются в один узел. Прямой проход
+         * строит узлы и число способов дойти до узла по количеству мин, обратный - число способов закончить
+         * перебор из узла. Число решений с миной в клетке i складывается из произведений этих чисел на переходах
+         * уровня i со значением 1. Каждый уровень нормируется, логарифмы множителей хранятся отдельно.
+         * При превышении бюджета времени или памяти ways остается null
+         *
+         * @param logRatio - логарифм множителя каждой мины в числах решений
+         */
+        void solveExact(long deadline, double logRatio) {
+            this.deadline = deadline;
+            double ratio = Math.exp(logRatio);
+            memoSize = 0;
+            steps = 0;
+            int n = keys.length;
+            try {
+                double[] logForward = new double[n + 1];
+                Node[][] levels = expand(logForward, ratio);
+                double[] logBackward = new double[n + 1];
+                for (int i = n; i >= 0; i--) {
+                    double max = 0;
+                    for (Node node : levels[i]) {
+                        tick();
+                        if (i == n) {
+                            node.backward = new Counts(0, new double[]{1});
+                        } else {
+                            for (int value = 0; value <= 1; value++) {
+                                Node child = node.children[value];
+                                if (child != null && child.backward != null) {
+                                    node.backward = Counts.add(node.backward, child.backward, value, ratio);
+                                }
+                            }
+                        }
+                        max = Math.max(max, charge(node.backward));
+                    }
+                    logBackward[i] = (i < n ? logBackward[i + 1] : 0) + scale(levels[i], max, false);
+                }
+                Counts all = levels[0][0].backward;
+                ways = new double[n + 1];
+                cellMines = new double[n + 1][];
+                if (all == null) {
+                    return;
+                }
+                for (int t = 0; t < all.values.length; t++) {
+                    ways[all.from + t] = all.values[t];
+                    if (all.values[t] != 0) {
+                        memoSize += n;
+                        cellMines[all.from + t] = new double[n];
+                    }
+                }
+                checkMemo();
+                for (int i = 0; i < n; i++) {
+                    double logFactor = logForward[i] + logBackward[i + 1] - logBackward[0] + logRatio;
+                    for (Node node : levels[i]) {
+                        tick();
+                        Node child = node.children[1];
+                        if (child == null || child.backward == null) {
+                            continue;
+                        }
+                        Counts before = node.forward;
+                        Counts after = child.backward;
+                        for (int a = 0; a < before.values.length; a++) {
+                            if (before.values[a] == 0) {
+                                continue;
+                            }
+                            // множитель уровня может не помещаться в double, хотя произведение не больше ways[k]
+                            double logWeight = Math.log(before.values[a]) + logFactor;
+                            double weight = Math.exp(logWeight);
+                            for (int b = 0; b < after.values.length; b++) {
+                                double[] row = cellMines[before.from + a + 1 + after.from + b];
+                                if (row != null && after.values[b] != 0) {
+                                    row[i] += weight < Double.MAX_VALUE ? weight * after.values[b]
+                                            : Math.exp(logWeight + Math.log(after.values[b]));
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (BudgetExceededException e) {
+                ways = null;
+                cellMines = null;
+            } finally {
+                System.arraycopy(required, 0, remaining, 0, required.length);
+            }
+        }
+
+        /**
+         * Прямой проход: строит уровни узлов и число способов дойти до каждого узла по количеству мин
+         *
+         * @param logForward - логарифмы множителей нормировки уровней
+         * @param ratio      - множитель каждой мины
+         */
+        private Node[][] expand(double[] logForward, double ratio) {
+            int n = keys.length;
+            Node[][] levels = new Node[n + 1][];
+            Node root = new Node();
+            root.forward = new Counts(0, new double[]{1});
+            levels[0] = new Node[]{root};
+            for (int i = 0; i < n; i++) {
+                Map<StateKey, Node> next = new HashMap<>();
+                List<Node> nodes = new ArrayList<>();
+                double max = 0;
+                for (Node node : levels[i]) {
+                    tick();
+                    for (int j = 0; j < activeAt[i].length; j++) {
+                        remaining[activeAt[i][j]] = node.state[j];
+                    }
+                    for (int c : startAt[i]) {
+                        remaining[c] = required[c];
+                    }
+                    node.state = null;
+                    for (int value = 0; value <= 1; value++) {
+                        if (!isFeasible(i, value)) {
+                            continue;
+                        }
+                        assign(i, value);
+                        StateKey key = stateKey(i + 1);
+                        assign(i, -value);
+                        Node child = next.get(key);
+                        if (child == null) {
+                            child = new Node();
+                            child.state = key.values;
+                            memoSize += key.values.length;
+                            next.put(key, child);
+                            nodes.add(child);
+                        }
+                        node.children[value] = child;
+                        child.forward = Counts.add(child.forward, node.forward, value, ratio);
+                    }
+                }
+                levels[i + 1] = nodes.toArray(new Node[0]);
+                for (Node node : levels[i + 1]) {
+                    max = Math.max(max, charge(node.forward));
+                }
+                logForward[i + 1] = logForward[i] + scale(levels[i + 1], max, true);
+            }
+            return levels;
+        }
+
+        /**
+         * Учитывает массив в объеме запомненного
+         *
+         * @return наибольшее значение массива
+         */
+        private double charge(Counts counts) {
+            if (counts == null) {
+                return 0;
+            }
+            memoSize += counts.values.length;
+            checkMemo();
+            double max = 0;
+            for (double value : counts.values) {
+                max = Math.max(max, value);
+            }
+            return max;
+        }
+
+        private void checkMemo() {
+            if (memoSize > MEMO_LIMIT) {
+                throw new BudgetExceededException();
+            }
+        }
+
+        private void tick() {
+            if ((++steps & 0xFF) == 0) {
+                checkDeadline(deadline);
+            }
+        }
+
+        /**
+         * Делит числа уровня на наибольшее из них
+         *
+         * @return логарифм множителя
+         */
+        private static double scale(Node[] level, double max, boolean forward) {
+            if (max == 0) {
+                return 0;
+            }
+            for (Node node : level) {
+                Counts counts = forward ? node.forward : node.backward;
+                if (counts != null) {
+                    for (int t = 0; t < counts.values.length; t++) {
+                        counts.values[t] /= max;
+                    }
+                }
+            }
+            return Math.log(max);
+        }
+
+        /**
+         * Можно ли присвоить клетке i значение value: ни одно ее ограничение не уходит в минус и может быть
+         * выполнено оставшимися после нее клетками
+         */
+        private boolean isFeasible(int i, int value) {
+            for (int j = 0; j < cellConstraints[i].length; j++) {
+                int left = remaining[cellConstraints[i][j]] - value;
+                if (left < 0 || left > cellsAfter[i][j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void assign(int i, int value) {
+            for (int c : cellConstraints[i]) {
+                remaining[c] -= value;
+            }
+        }
+
+        private StateKey stateKey(int i) {
+            int[] values = new int[activeAt[i].length];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = remaining[activeAt[i][j]];
+            }
+            return new StateKey(values);
+        }
+
+        /**
+         * Приближенная оценка: решения ищутся перебором со случайным порядком значений, каждое найденное решение
+         * учитывается с весом ratio^k. Выборка прекращается по истечении бюджета. Если не найдено ни одного решения,
+         * ways остается null
+         */
+        void sample(SplittableRandom random, long deadline, double logRatio) {
+            if (System.nanoTime() > deadline) {
+                return;
+            }
+            int n = keys.length;
+            double[] sampledWays = new double[n + 1];
+            cellMines = new double[n + 1][];
+            int[] assignment = new int[n];
+            int[] tried = new int[n];
+            int[] firstValue = new int[n];
+            int found = 0;
+            for (int s = 0; s < SAMPLES && System.nanoTime() <= deadline; s++) {
+                if (!sampleOnce(assignment, tried, firstValue, random)) {
+                    continue;
+                }
+                found++;
+                int k = 0;
+                for (int value : assignment) {
+                    k += value;
+                }
+                sampledWays[k]++;
+                if (cellMines[k] == null) {
+                    cellMines[k] = new double[n];
+                }
+                for (int i = 0; i < n; i++) {
+                    cellMines[k][i] += assignment[i];
+                }
+            }
+            if (found == 0) {
+                ways = null;
+                cellMines = null;
+                return;
+            }
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k <= n; k++) {
+                if (sampledWays[k] > 0) {
+                    max = Math.max(max, Math.log(sampledWays[k]) + k * logRatio);
+                }
+            }
+            for (int k = 0; k <= n; k++) {
+                if (sampledWays[k] > 0) {
+                    double weight = Math.exp(Math.log(sampledWays[k]) + k * logRatio - max);
+                    for (int i = 0; i < n; i++) {
+                        cellMines[k][i] *= weight / sampledWays[k];
+                    }
+                    sampledWays[k] = weight;
+                }
+            }
+            ways = sampledWays;
+        }
+
+        /**
+         * Поиск одного решения с возвратом без рекурсии: tried[i] - сколько значений клетки i уже испробовано,
+         * firstValue[i] - значение, испробованное первым. Остатки ограничений после поиска восстанавливаются
+         */
+        private boolean sampleOnce(int[] assignment, int[] tried, int[] firstValue, SplittableRandom random) {
+            int n = keys.length;
+            steps = 0;
+            int i = 0;
+            boolean found = true;
+            if (n > 0) {
+                tried[0] = 0;
+                firstValue[0] = random.nextInt(2);
+            }
+            while (i < n) {
+                if (tried[i] == 2) {
+                    if (i == 0) {
+                        found = false;
+                        break;
+                    }
+                    i--;
+                    assign(i, -assignment[i]);
+                    continue;
+                }
+                int value = firstValue[i] ^ tried[i]++;
+                if (!isFeasible(i, value)) {
+                    continue;
+                }
+                if (++steps > SAMPLE_STEPS) {
+                    found = false;
+                    break;
+                }
+                assign(i, value);
+                assignment[i++] = value;
+                if (i < n) {
+                    tried[i] = 0;
+                    firstValue[i] = random.nextInt(2);
+                }
+            }
+            for (int j = 0; j < i; j++) {
+                assign(j, -assignment[j]);
+            }
+            return found;
+        }
+
+        /**
+         * Записывает вероятности клеток компоненты при весе kWeight[k] решений с k минами
+         *
+         * @param density - вероятность мины по умолчанию, если у компоненты нет ни одного решения
+         */
+        void apply(double[] kWeight, ProbabilityMap map, double density) {
+            double total = 0;
+            double[] mine = new double[keys.length];
+            for (int k = 0; k < ways.length; k++) {
+                if (ways[k] == 0 || kWeight[k] == 0) {
+                    continue;
+                }
+                total += ways[k] * kWeight[k];
+                double[] row = cellMines[k];
+                for (int i = 0; i < mine.length; i++) {
+                    mine[i] += row[i] * kWeight[k];
+                }
+            }
+            for (int i = 0; i < keys.length; i++) {
+                double probability = total > 0 ? mine[i] / total : density;
+                map.set(ConstraintSolver.keyX(keys[i]), ConstraintSolver.keyY(keys[i]), probability);
+            }
+        }
+    }
+
+    /**
+     * Узел уровня точного перебора: состояние перед клеткой, узлы после присвоения клетке 0 и 1 (null - значение
+     * недопустимо), число способов дойти до узла и закончить перебор из него по количеству мин
+     */
+    private static class Node {
+
+        private int[] state = new int[0];
+        private final Node[] children = new Node[2];
+        private Counts forward;
+        private Counts backward;
+    }
+
+    /**
+     * Числа способов по количеству мин: values[t] - для from + t мин
+     */
+    private static class Counts {
+
+        final int from;
+        final double[] values;
+
+        Counts(int from, double[] values) {
+            this.from = from;
+            this.values = values;
+        }
+
+        /**
+         * Прибавляет к target числа source, сдвинутые на shift мин, с множителем ratio для каждой из них.
+         * Если target не вмещает сумму или равен null, возвращает новый массив
+         */
+        static Counts add(Counts target, Counts source, int shift, double ratio) {
+            double factor = shift == 0 ? 1 : ratio;
+            int from = source.from + shift;
+            int to = from + source.values.length;
+            Counts result = target;
+            if (target == null) {
+                result = new Counts(from, new double[source.values.length]);
+            } else if (from < target.from || to > target.from + target.values.length) {
+                int low = Math.min(from, target.from);
+                int high = Math.max(to, target.from + target.values.length);
+                result = new Counts(low, new double[high - low]);
+                System.arraycopy(target.values, 0, result.values, target.from - low, target.values.length);
+            }
+            for (int t = 0; t < source.values.length; t++) {
+                result.values[from - result.from + t] += source.values[t] * factor;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Ключ узла уровня точного перебора: остатки начатых и незакрытых ограничений
+     */
+    private static final class StateKey {
+
+        private final int[] values;
+        private final int hash;
+
+        StateKey(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateKey && Arrays.equals(values, ((StateKey) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package Minesweeper.main.Solver;
+
+import java.util.Arrays;
+
+/**
+ * Вероятности мин в закрытых клетках прямоугольного окна поля. Для открытых клеток и клеток вне окна
+ * вероятность не определена (NaN)
+ *
+ * @author Кристина Зеленько
+ * @version 1.0
+ * @see ProbabilityEngine
+ */
+public class ProbabilityMap {
+
+    private final int fromX;
+    private final int fromY;
+    private final int width;
+    private final int height;
+    private final float[] probabilities;
+    private boolean exact = true;
+    private double interiorProbability;
+
+    ProbabilityMap(int fromX, int fromY, int width, int height) {
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.width = width;
+        this.height = height;
+        this.probabilities = new float[width * height];
+        Arrays.fill(probabilities, Float.NaN);
+    }
+
+    void set(int x, int y, double probability) {
+        if (contains(x, y)) {
+            probabilities[(y - fromY) * width + (x - fromX)] = (float) probability;
+        }
+    }
+
+    void setInexact() {
+        exact = false;
+    }
+
+    void setInteriorProbability(double interiorProbability) {
+        this.interiorProbability = interiorProbability;
+    }
+
+    /**
+     * Вероятность того, что в клетке мина
+     *
+     * @return число от 0 до 1 или NaN, если клетка открыта или лежит вне окна
+     */
+    public double getProbability(int x, int y) {
+        return contains(x, y) ? probabilities[(y - fromY) * width + (x - fromX)] : Double.NaN;
+    }
+
+    /**
+     * Вероятность мины в закрытой клетке, не граничащей с открытыми цифрами
+     */
+    public double getInteriorProbability() {
+        return interiorProbability;
+    }
+
+    /**
+     * Были ли все компоненты границы перебраны точно. false, если для части из них бюджет времени был превышен
+     * и вероятности оценены выборкой
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Закрытая клетка с наименьшей вероятностью мины, при равенстве - первая по строкам
+     *
+     * @return ключ клетки {@link ConstraintSolver#key(int, int)} или {@link ConstraintSolver#NONE}
+     */
+    public long findSafestCell() {
+        int best = -1;
+        for (int i = 0; i < probabilities.length; i++) {
+            if (!Float.isNaN(probabilities[i]) && (best < 0 || probabilities[i] < probabilities[best])) {
+                best = i;
+            }
+        }
+        return best < 0 ? ConstraintSolver.NONE : ConstraintSolver.key(fromX + best % width, fromY + best / width);
+    }
+
+    public int getFromX() {
+        return fromX;
+    }
+
+    public int getFromY() {
+        return fromY;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    private boolean contains(int x, int y) {
+        return x >= fromX && y >= fromY && x - fromX < width && y - fromY < height;
+    }
+}
@@ -1,17 +1,21 @@
 package Minesweeper.main;
 
 import Minesweeper.main.BoardMVC.BoardController;
-import Minesweeper.main.BoardMVC.BoardModel;
+import Minesweeper.main.BoardMVC.PackedBoardModel;
+import Minesweeper.main.Metrics.GameMetrics;
 
 /**
- * Класс запускает инициализацию модели, отображения (далее - вида) и контроллера
+ * Класс запускает инициализацию модели, отображения (далее - вида) и контроллера. Используется компактная модель,
+ * так как пользовательские поля могут содержать миллионы клеток.
+ * Показатели игры публикуются через JMX {@link GameMetrics}
  *
  * @author Кристина Зеленько
  * @version 1.0
  */
 public class Start {
     public static void main(String[] args) {
-        BoardModelInterface model = new BoardModel();
+        GameMetrics.register();
+        BoardModelInterface model = new PackedBoardModel();
         new BoardController(model);
     }
 }